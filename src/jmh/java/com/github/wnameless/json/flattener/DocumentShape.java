@@ -0,0 +1,143 @@
+/*
+ *
+ * Copyright 2026 Wei-Ming Wu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package com.github.wnameless.json.flattener;
+
+/**
+ *
+ * {@link DocumentShape} generates the JSON documents which the benchmarks run against. Every
+ * document is deterministic and none of its keys contains a dot, so it can be flattened in any
+ * {@link FlattenMode}.
+ *
+ * @author Wei-Ming Wu
+ *
+ */
+public enum DocumentShape {
+
+  /**
+   * A shallow object with many members and long arrays of numbers.
+   */
+  WIDE {
+    @Override
+    public String json() {
+      StringBuilder sb = new StringBuilder("{");
+      for (int i = 0; i < 200; i++) {
+        if (i != 0) sb.append(',');
+        sb.append("\"field").append(i).append("\":{\"values\":[");
+        for (int j = 0; j < 50; j++) {
+          if (j != 0) sb.append(',');
+          sb.append(j);
+        }
+        sb.append("],\"name\":\"n").append(i).append("\"}");
+      }
+      return sb.append('}').toString();
+    }
+  },
+
+  /**
+   * 12 levels of nested objects and arrays, each level fans out into a few members.
+   */
+  DEEP {
+    @Override
+    public String json() {
+      StringBuilder sb = new StringBuilder();
+      appendDeep(sb, 12);
+      return sb.toString();
+    }
+
+    private void appendDeep(StringBuilder sb, int level) {
+      if (level == 0) {
+        sb.append("{\"metric\":\"cpu.load\",\"value\":0.75,\"ok\":true}");
+        return;
+      }
+      sb.append("{\"level").append(level).append("\":{\"id\":").append(level)
+          .append(",\"tags\":[\"a\",\"b\"],\"child\":[");
+      appendDeep(sb, level - 1);
+      sb.append(',');
+      appendDeep(sb, level - 2 < 0 ? 0 : level - 2);
+      sb.append("]}}");
+    }
+  },
+
+  /**
+   * Arrays of arrays and arrays of small objects, both primitive and mixed.
+   */
+  ARRAY_HEAVY {
+    @Override
+    public String json() {
+      StringBuilder sb = new StringBuilder("{\"matrix\":[");
+      for (int i = 0; i < 50; i++) {
+        if (i != 0) sb.append(',');
+        sb.append('[');
+        for (int j = 0; j < 20; j++) {
+          if (j != 0) sb.append(',');
+          sb.append(i * j).append(".5");
+        }
+        sb.append(']');
+      }
+      sb.append("],\"rows\":[");
+      for (int i = 0; i < 200; i++) {
+        if (i != 0) sb.append(',');
+        sb.append("{\"id\":").append(i).append(",\"flags\":[true,false,null],\"mixed\":[")
+            .append(i).append(",{\"k\":\"v").append(i).append("\"},[]]}");
+      }
+      return sb.append("]}").toString();
+    }
+  },
+
+  /**
+   * Many long plain ASCII strings which need no escaping.
+   */
+  STRING_HEAVY {
+    @Override
+    public String json() {
+      StringBuilder sb = new StringBuilder("{\"docs\":[");
+      for (int i = 0; i < 200; i++) {
+        if (i != 0) sb.append(',');
+        sb.append("{\"title\":\"Document number ").append(i)
+            .append("\",\"body\":\"Lorem ipsum dolor sit amet consectetur adipiscing elit sed do")
+            .append(" eiusmod tempor incididunt ut labore et dolore magna aliqua ").append(i)
+            .append("\",\"author\":\"author").append(i % 17).append("\"}");
+      }
+      return sb.append("]}").toString();
+    }
+  },
+
+  /**
+   * Keys and strings full of characters which have to be escaped, like quotes, backslashes,
+   * control characters, slashes and non-ASCII characters.
+   */
+  ESCAPE_HEAVY {
+    @Override
+    public String json() {
+      StringBuilder sb = new StringBuilder("{");
+      for (int i = 0; i < 300; i++) {
+        if (i != 0) sb.append(',');
+        sb.append("\"k\\\"ey\\t").append(i).append("\":{\"path\\\\\":\"C:\\\\dir\\\\file")
+            .append(i).append("\",\"quote\":\"say \\\"hi\\\"\\n\\r\\t\",\"url\":\"http://x/y/")
+            .append(i).append("\",\"unicode\":\"太極 兩儀 café \\b\\f \\u2028\"}");
+      }
+      return sb.append('}').toString();
+    }
+  };
+
+  /**
+   * Returns the JSON document of this shape.
+   *
+   * @return a JSON string
+   */
+  public abstract String json();
+
+}
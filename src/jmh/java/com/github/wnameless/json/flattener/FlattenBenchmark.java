@@ -0,0 +1,73 @@
+/*
+ *
+ * Copyright 2026 Wei-Ming Wu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package com.github.wnameless.json.flattener;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ *
+ * Measures {@link JsonFlattener#flatten()} and {@link JsonFlattener#flattenAsMap()} from a JSON
+ * string, parsing included, for every {@link DocumentShape} and {@link FlattenMode}. The documents
+ * are generated once per trial, so running with {@code -prof gc} reports the allocation of
+ * flattening only.
+ *
+ * @author Wei-Ming Wu
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FlattenBenchmark {
+
+  @Param
+  public DocumentShape shape;
+
+  @Param
+  public FlattenMode mode;
+
+  private String json;
+
+  @Setup
+  public void setup() {
+    json = shape.json();
+  }
+
+  @Benchmark
+  public String flatten() {
+    return new JsonFlattener(json).withFlattenMode(mode).flatten();
+  }
+
+  @Benchmark
+  public Map<String, Object> flattenAsMap() {
+    return new JsonFlattener(json).withFlattenMode(mode).flattenAsMap();
+  }
+
+}
@@ -0,0 +1,91 @@
+/*
+ *
+ * Copyright 2026 Wei-Ming Wu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package com.github.wnameless.json.flattener;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ *
+ * Measures the records per second of flattening newline-delimited JSON, both line by line with a
+ * new {@link JsonFlattener} per record and with
+ * {@link StreamingJsonFlattener#flattenLines(java.io.Reader, java.io.Writer)}.
+ *
+ * @author Wei-Ming Wu
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonLinesBenchmark {
+
+  private static final int RECORDS = 1000;
+
+  private final StreamingJsonFlattener flattener = new StreamingJsonFlattener();
+  private String jsonLines;
+
+  @Setup
+  public void setup() {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < RECORDS; i++) {
+      sb.append("{\"ts\":").append(1767225600000L + i);
+      sb.append(",\"level\":\"INFO\",\"msg\":\"request ").append(i).append(" served\"");
+      sb.append(",\"http\":{\"status\":200,\"path\":\"/api/items/").append(i).append('"');
+      sb.append(",\"latency\":").append(i % 97 / 10.0).append('}');
+      sb.append(",\"tags\":[\"a\",\"b\"]}\n");
+    }
+    jsonLines = sb.toString();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(RECORDS)
+  public String flattenPerLine() throws IOException {
+    StringWriter sw = new StringWriter();
+    BufferedReader reader = new BufferedReader(new StringReader(jsonLines));
+    String line;
+    while ((line = reader.readLine()) != null) {
+      sw.write(new JsonFlattener(line).flatten());
+      sw.write('\n');
+    }
+    return sw.toString();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(RECORDS)
+  public String flattenLines() throws IOException {
+    StringWriter sw = new StringWriter();
+    flattener.flattenLines(new StringReader(jsonLines), sw);
+    return sw.toString();
+  }
+
+}
@@ -0,0 +1,69 @@
+/*
+ *
+ * Copyright 2026 Wei-Ming Wu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package com.github.wnameless.json.flattener;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ *
+ * Measures the serialization of a flattened Map by {@link JsonifyLinkedHashMap#toString(PrintMode)}
+ * for every {@link DocumentShape}, {@link PrintMode} and {@link StringEscapePolicy}.
+ *
+ * @author Wei-Ming Wu
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PrintBenchmark {
+
+  @Param
+  public DocumentShape shape;
+
+  @Param
+  public PrintMode printMode;
+
+  @Param({"DEFAULT", "ALL"})
+  public StringEscapePolicy policy;
+
+  private JsonifyLinkedHashMap<String, Object> flattenedMap;
+
+  @Setup
+  public void setup() {
+    flattenedMap = (JsonifyLinkedHashMap<String, Object>) new JsonFlattener(shape.json())
+        .withStringEscapePolicy(policy).flattenAsMap();
+  }
+
+  @Benchmark
+  public String toStringByPrintMode() {
+    return flattenedMap.toString(printMode);
+  }
+
+}
@@ -0,0 +1,89 @@
+/*
+ *
+ * Copyright 2026 Wei-Ming Wu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package com.github.wnameless.json.unflattener;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import com.github.wnameless.json.flattener.DocumentShape;
+import com.github.wnameless.json.flattener.FlattenMode;
+import com.github.wnameless.json.flattener.JsonFlattener;
+
+/**
+ *
+ * Measures {@link JsonUnflattener#unflatten()} and {@link JsonUnflattener#unflattenAsMap()} from a
+ * flattened JSON string and from a flattened Map, for every {@link DocumentShape} and
+ * {@link FlattenMode}. The flattened inputs are prepared once per trial, so running with
+ * {@code -prof gc} reports the allocation of unflattening only.
+ *
+ * @author Wei-Ming Wu
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UnflattenBenchmark {
+
+  @Param
+  public DocumentShape shape;
+
+  @Param
+  public FlattenMode mode;
+
+  private String flattenedJson;
+  private Map<String, Object> flattenedMap;
+
+  @Setup
+  public void setup() {
+    JsonFlattener jf = new JsonFlattener(shape.json()).withFlattenMode(mode);
+    flattenedJson = jf.flatten();
+    flattenedMap = jf.flattenAsMap();
+  }
+
+  @Benchmark
+  public String unflatten() {
+    return new JsonUnflattener(flattenedJson).withFlattenMode(mode).unflatten();
+  }
+
+  @Benchmark
+  public Map<String, Object> unflattenAsMap() {
+    return new JsonUnflattener(flattenedJson).withFlattenMode(mode).unflattenAsMap();
+  }
+
+  @Benchmark
+  public String unflattenMap() {
+    return new JsonUnflattener(flattenedMap).withFlattenMode(mode).unflatten();
+  }
+
+  @Benchmark
+  public Map<String, Object> unflattenMapAsMap() {
+    return new JsonUnflattener(flattenedMap).withFlattenMode(mode).unflattenAsMap();
+  }
+
+}
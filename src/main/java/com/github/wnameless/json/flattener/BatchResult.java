@@ -0,0 +1,83 @@
+/*
+ *
+ * Copyright 2026 Wei-Ming Wu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package com.github.wnameless.json.flattener;
+
+/**
+ *
+ * {@link BatchResult} is the outcome of a single input of a batch, which is either a value or the
+ * exception thrown while processing the input. A failed input doesn't abort the rest of its batch.
+ *
+ * @author Wei-Ming Wu
+ *
+ * @param <T> the type of the value
+ */
+public final class BatchResult<T> {
+
+  private final int index;
+  private final T value;
+  private final RuntimeException failure;
+
+  BatchResult(int index, T value, RuntimeException failure) {
+    this.index = index;
+    this.value = value;
+    this.failure = failure;
+  }
+
+  /**
+   * Returns the index of the input of this result within its batch.
+   *
+   * @return the index of the input
+   */
+  public int getIndex() {
+    return index;
+  }
+
+  /**
+   * Checks if the input has been processed without any exception.
+   *
+   * @return true if the input has been processed, false otherwise
+   */
+  public boolean isSuccess() {
+    return failure == null;
+  }
+
+  /**
+   * Returns the value of the input.
+   *
+   * @return the value of the input
+   * @throws IllegalStateException if the input has failed
+   */
+  public T getValue() {
+    if (failure != null) throw new IllegalStateException("Input " + index + " failed", failure);
+    return value;
+  }
+
+  /**
+   * Returns the exception thrown while processing the input.
+   *
+   * @return the exception thrown while processing the input or null if the input has succeeded
+   */
+  public RuntimeException getFailure() {
+    return failure;
+  }
+
+  @Override
+  public String toString() {
+    return "BatchResult{index=" + index + ", "
+        + (failure == null ? "value=" + value : "failure=" + failure) + "}";
+  }
+
+}
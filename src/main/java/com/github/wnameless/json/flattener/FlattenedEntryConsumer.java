@@ -0,0 +1,38 @@
+/*
+ *
+ * Copyright 2026 Wei-Ming Wu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package com.github.wnameless.json.flattener;
+
+/**
+ * 
+ * {@link FlattenedEntryConsumer} receives the flattened key/value pairs of a JSON one at a time, in
+ * the same order as they appear in the Map returned by {@link JsonFlattener#flattenAsMap()}.
+ * 
+ * @author Wei-Ming Wu
+ *
+ */
+@FunctionalInterface
+public interface FlattenedEntryConsumer {
+
+  /**
+   * Accepts a flattened key and its value.
+   * 
+   * @param key a flattened key
+   * @param value either String, Boolean, Number, null or, depending on the {@link FlattenMode}, an
+   *        empty object or a kept array
+   */
+  void accept(String key, Object value);
+
+}
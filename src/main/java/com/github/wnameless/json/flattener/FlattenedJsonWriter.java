@@ -0,0 +1,160 @@
+/*
+ *
+ * Copyright 2026 Wei-Ming Wu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package com.github.wnameless.json.flattener;
+
+import static com.github.wnameless.json.flattener.JsonFlattener.ROOT;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.util.Collection;
+import java.util.Map;
+import org.apache.commons.text.translate.CharSequenceTranslator;
+
+/**
+ *
+ * {@link FlattenedJsonWriter} writes flattened key/value pairs as a JSON object in the same format
+ * as {@link JsonifyLinkedHashMap#toString()}, as soon as they are passed to it. A single value
+ * passed with the {@link JsonFlattener#ROOT} key from a JSON array or primitive is written on its
+ * own instead, in the same format as {@link JsonFlattener#flatten()} writes it. Pretty JSON can be
+ * written by passing a {@link PrettyJsonWriter} to it.<br>
+ * <br>
+ * {@link IOException}s of the underlying writer are rethrown as {@link UncheckedIOException}s by
+ * {@link #accept(String, Object)}.
+ *
+ * @author Wei-Ming Wu
+ *
+ */
+final class FlattenedJsonWriter implements FlattenedEntryConsumer {
+
+  private final Writer writer;
+  private final CharSequenceTranslator translator;
+  private final boolean objectSource;
+  private boolean opened = false;
+  private boolean rootValue = false;
+
+  FlattenedJsonWriter(Writer writer, CharSequenceTranslator translator, boolean objectSource) {
+    this.writer = writer;
+    this.translator = translator;
+    this.objectSource = objectSource;
+  }
+
+  @Override
+  public void accept(String key, Object value) {
+    try {
+      if (!opened && !objectSource && ROOT.equals(key)) {
+        rootValue = true;
+        writeRootValue(value);
+        return;
+      }
+
+      writer.write(opened ? ',' : '{');
+      opened = true;
+      writer.write('"');
+      JsonStringEscaper.escape(translator, key, writer);
+      writer.write("\":");
+      writeValue(value);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private void writeValue(Object value) throws IOException {
+    if (value instanceof String) {
+      writer.write('"');
+      JsonStringEscaper.escape(translator, (String) value, writer);
+      writer.write('"');
+    } else if (value instanceof Collection) {
+      new JsonifyArrayList<>((Collection<?>) value).writeTo(writer);
+    } else if (value instanceof Map) {
+      new JsonifyLinkedHashMap<>((Map<?, ?>) value).writeTo(writer);
+    } else {
+      writer.write(String.valueOf(value));
+    }
+  }
+
+  private void writeRootValue(Object value) throws IOException {
+    if (value instanceof CharSequence) {
+      writer.write('"');
+      JsonStringEscaper.escape(translator, (CharSequence) value, writer);
+      writer.write('"');
+    } else if (value instanceof JsonifyArrayList) {
+      ((JsonifyArrayList<?>) value).writeTo(writer);
+    } else {
+      writer.write(String.valueOf(value));
+    }
+  }
+
+  /**
+   * Ends the JSON object, or writes an empty one if no key/value pair has been passed.
+   *
+   * @throws IOException if the writer cannot be written
+   */
+  void close() throws IOException {
+    if (rootValue) return;
+    if (!opened) writer.write('{');
+    writer.write('}');
+  }
+
+  /**
+   * Returns the given {@link Appendable} as a {@link Writer}.
+   *
+   * @param out any {@link Appendable}
+   * @return a {@link Writer} which appends to the given {@link Appendable}
+   */
+  static Writer asWriter(Appendable out) {
+    if (out instanceof Writer) return (Writer) out;
+
+    return new Writer() {
+      @Override
+      public void write(int c) throws IOException {
+        out.append((char) c);
+      }
+
+      @Override
+      public void write(char[] cbuf, int off, int len) throws IOException {
+        out.append(CharBuffer.wrap(cbuf, off, len));
+      }
+
+      @Override
+      public void write(String str, int off, int len) throws IOException {
+        out.append(str, off, off + len);
+      }
+
+      @Override
+      public Writer append(CharSequence csq) throws IOException {
+        out.append(csq);
+        return this;
+      }
+
+      @Override
+      public Writer append(CharSequence csq, int start, int end) throws IOException {
+        out.append(csq, start, end);
+        return this;
+      }
+
+      @Override
+      public void flush() throws IOException {
+        if (out instanceof Flushable) ((Flushable) out).flush();
+      }
+
+      @Override
+      public void close() {}
+    };
+  }
+
+}
@@ -0,0 +1,197 @@
+/*
+ *
+ * Copyright 2026 Wei-Ming Wu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package com.github.wnameless.json.flattener;
+
+import static com.github.wnameless.json.flattener.FlattenMode.MONGODB;
+import java.util.Arrays;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ *
+ * {@link FlattenedKeyBuilder} builds flattened keys incrementally. A key part is appended whenever
+ * a traversal descends into an object member or an array element and it is truncated again when the
+ * traversal ascends, so the key of a leaf never has to be rebuilt from the root. The index tokens
+ * of the first {@value #MAX_CACHED_INDEX_TOKENS} array indexes, like [0] or .0, are cached.
+ *
+ * @author Wei-Ming Wu
+ *
+ */
+final class FlattenedKeyBuilder {
+
+  private static final int MAX_CACHED_INDEX_TOKENS = 1024;
+
+  private final FlattenMode flattenMode;
+  private final char separator;
+  private final char leftBracket;
+  private final char rightBracket;
+  private final KeyTransformer keyTrans;
+  private final boolean ignoreReservedCharacters;
+
+  private final StringBuilder sb = new StringBuilder();
+  private int[] lengths = new int[16];
+  private int depth = 0;
+  private String[] indexTokens = new String[16];
+
+  FlattenedKeyBuilder(FlattenMode flattenMode, char separator, char leftBracket, char rightBracket,
+      KeyTransformer keyTrans, boolean ignoreReservedCharacters) {
+    this.flattenMode = flattenMode;
+    this.separator = separator;
+    this.leftBracket = leftBracket;
+    this.rightBracket = rightBracket;
+    this.keyTrans = keyTrans;
+    this.ignoreReservedCharacters = ignoreReservedCharacters;
+  }
+
+  /**
+   * Appends an object key to the current key.
+   *
+   * @param key the key of an object member
+   */
+  void pushKey(String key) {
+    pushTransformedKey(transformKey(key));
+  }
+
+  /**
+   * Returns the given object key transformed by the {@link KeyTransformer} of this builder.
+   *
+   * @param key the key of an object member
+   * @return the transformed key
+   */
+  String transformKey(String key) {
+    return keyTrans == null ? key : keyTrans.transform(key);
+  }
+
+  /**
+   * Appends an object key, which has been transformed by {@link #transformKey(String)} already, to
+   * the current key.
+   *
+   * @param key the transformed key of an object member
+   */
+  void pushTransformedKey(String key) {
+    mark();
+
+    // Empty string or string with reserved characters must be wrapped in double quotes
+    if ((key.isEmpty() && flattenMode != MONGODB) || hasReservedCharacters(key)) {
+      sb.append(leftBracket);
+      sb.append('"');
+      sb.append(key);
+      sb.append('"');
+      sb.append(rightBracket);
+    } else {
+      if (sb.length() != 0) sb.append(separator);
+      sb.append(key);
+    }
+  }
+
+  /**
+   * Appends an array index to the current key.
+   *
+   * @param index the index of an array element
+   */
+  void pushIndex(int index) {
+    mark();
+
+    if (index < MAX_CACHED_INDEX_TOKENS) {
+      sb.append(indexToken(index));
+    } else {
+      appendIndexToken(sb, index);
+    }
+  }
+
+  private String indexToken(int index) {
+    if (index >= indexTokens.length) {
+      indexTokens = Arrays.copyOf(indexTokens,
+          Math.min(Math.max(index + 1, indexTokens.length * 2), MAX_CACHED_INDEX_TOKENS));
+    }
+
+    String token = indexTokens[index];
+    if (token == null) {
+      StringBuilder tokenSb = new StringBuilder();
+      appendIndexToken(tokenSb, index);
+      token = indexTokens[index] = tokenSb.toString();
+    }
+    return token;
+  }
+
+  private void appendIndexToken(StringBuilder tokenSb, int index) {
+    if (flattenMode == MONGODB) {
+      tokenSb.append(separator);
+      tokenSb.append(index);
+    } else {
+      tokenSb.append(leftBracket);
+      tokenSb.append(index);
+      tokenSb.append(rightBracket);
+    }
+  }
+
+  /**
+   * Appends an empty key part for a member or an element which is skipped, so it can be removed by
+   * {@link #pop()} like any other key part.
+   */
+  void pushSkipped() {
+    mark();
+  }
+
+  /**
+   * Removes the last appended key part.
+   */
+  void pop() {
+    sb.setLength(lengths[--depth]);
+  }
+
+  /**
+   * Removes all key parts, the cached index tokens are kept.
+   */
+  void clear() {
+    sb.setLength(0);
+    depth = 0;
+  }
+
+  /**
+   * Returns the number of key parts in the current key.
+   *
+   * @return the number of key parts
+   */
+  int depth() {
+    return depth;
+  }
+
+  private void mark() {
+    if (depth == lengths.length) lengths = Arrays.copyOf(lengths, depth * 2);
+    lengths[depth++] = sb.length();
+  }
+
+  private boolean hasReservedCharacters(String key) {
+    if (ignoreReservedCharacters) return false;
+    if (flattenMode == MONGODB && StringUtils.containsAny(key, separator))
+      throw new IllegalArgumentException(
+          "Key cannot contain separator(" + separator + ") in FlattenMode." + MONGODB);
+
+    return StringUtils.containsAny(key, separator, leftBracket, rightBracket);
+  }
+
+  /**
+   * Returns the current key or {@link JsonFlattener#ROOT} if no key part has been appended.
+   *
+   * @return the current key
+   */
+  @Override
+  public String toString() {
+    if (depth == 0) return JsonFlattener.ROOT;
+    return sb.toString();
+  }
+
+}
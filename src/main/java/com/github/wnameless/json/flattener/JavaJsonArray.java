@@ -0,0 +1,171 @@
+/*
+ *
+ * Copyright 2026 Wei-Ming Wu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package com.github.wnameless.json.flattener;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Iterator;
+import java.util.List;
+import com.github.wnameless.json.base.JsonArrayBase;
+import com.github.wnameless.json.base.JsonObjectBase;
+
+/**
+ *
+ * {@link JavaJsonArray} is the {@link JsonArrayBase} view of a List wrapped by a
+ * {@link JavaJsonValue}. Its elements are wrapped one at a time while they are iterated.
+ *
+ * @author Wei-Ming Wu
+ *
+ */
+final class JavaJsonArray implements JsonArrayBase<JavaJsonValue> {
+
+  private final List<?> list;
+
+  JavaJsonArray(List<?> list) {
+    this.list = list;
+  }
+
+  @Override
+  public JavaJsonValue get(int index) {
+    return new JavaJsonValue(list.get(index));
+  }
+
+  @Override
+  public int size() {
+    return list.size();
+  }
+
+  @Override
+  public Iterator<JavaJsonValue> iterator() {
+    Iterator<?> elements = list.iterator();
+    return new Iterator<JavaJsonValue>() {
+
+      @Override
+      public boolean hasNext() {
+        return elements.hasNext();
+      }
+
+      @Override
+      public JavaJsonValue next() {
+        return new JavaJsonValue(elements.next());
+      }
+
+    };
+  }
+
+  @Override
+  public boolean isObject() {
+    return false;
+  }
+
+  @Override
+  public boolean isArray() {
+    return true;
+  }
+
+  @Override
+  public boolean isString() {
+    return false;
+  }
+
+  @Override
+  public boolean isBoolean() {
+    return false;
+  }
+
+  @Override
+  public boolean isNumber() {
+    return false;
+  }
+
+  @Override
+  public boolean isNull() {
+    return false;
+  }
+
+  @Override
+  public String asString() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public boolean asBoolean() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public int asInt() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public long asLong() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public BigInteger asBigInteger() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public double asDouble() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public BigDecimal asBigDecimal() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public JsonObjectBase<JavaJsonValue> asObject() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public JsonArrayBase<JavaJsonValue> asArray() {
+    return this;
+  }
+
+  @Override
+  public JavaJsonValue asValue() {
+    return new JavaJsonValue(list);
+  }
+
+  @Override
+  public String toJson() {
+    return asValue().toJson();
+  }
+
+  @Override
+  public int hashCode() {
+    return list.hashCode();
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (!(o instanceof JavaJsonArray)) return false;
+    return list.equals(((JavaJsonArray) o).list);
+  }
+
+  @Override
+  public String toString() {
+    return toJson();
+  }
+
+}
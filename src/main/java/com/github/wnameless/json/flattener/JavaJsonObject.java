@@ -0,0 +1,198 @@
+/*
+ *
+ * Copyright 2026 Wei-Ming Wu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package com.github.wnameless.json.flattener;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import com.github.wnameless.json.base.JsonArrayBase;
+import com.github.wnameless.json.base.JsonObjectBase;
+
+/**
+ *
+ * {@link JavaJsonObject} is the {@link JsonObjectBase} view of a Map wrapped by a
+ * {@link JavaJsonValue}. Its members are wrapped one at a time while they are iterated.
+ *
+ * @author Wei-Ming Wu
+ *
+ */
+final class JavaJsonObject implements JsonObjectBase<JavaJsonValue> {
+
+  private final Map<?, ?> map;
+
+  JavaJsonObject(Map<?, ?> map) {
+    this.map = map;
+  }
+
+  @Override
+  public boolean contains(String name) {
+    return map.containsKey(name);
+  }
+
+  @Override
+  public JavaJsonValue get(String name) {
+    return new JavaJsonValue(map.get(name));
+  }
+
+  @Override
+  public int size() {
+    return map.size();
+  }
+
+  @Override
+  public Iterator<String> names() {
+    Iterator<?> keys = map.keySet().iterator();
+    return new Iterator<String>() {
+
+      @Override
+      public boolean hasNext() {
+        return keys.hasNext();
+      }
+
+      @Override
+      public String next() {
+        return String.valueOf(keys.next());
+      }
+
+    };
+  }
+
+  @Override
+  public Iterator<Entry<String, JavaJsonValue>> iterator() {
+    Iterator<? extends Entry<?, ?>> entries = map.entrySet().iterator();
+    return new Iterator<Entry<String, JavaJsonValue>>() {
+
+      @Override
+      public boolean hasNext() {
+        return entries.hasNext();
+      }
+
+      @Override
+      public Entry<String, JavaJsonValue> next() {
+        Entry<?, ?> entry = entries.next();
+        return new SimpleImmutableEntry<>(String.valueOf(entry.getKey()),
+            new JavaJsonValue(entry.getValue()));
+      }
+
+    };
+  }
+
+  @Override
+  public boolean isObject() {
+    return true;
+  }
+
+  @Override
+  public boolean isArray() {
+    return false;
+  }
+
+  @Override
+  public boolean isString() {
+    return false;
+  }
+
+  @Override
+  public boolean isBoolean() {
+    return false;
+  }
+
+  @Override
+  public boolean isNumber() {
+    return false;
+  }
+
+  @Override
+  public boolean isNull() {
+    return false;
+  }
+
+  @Override
+  public String asString() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public boolean asBoolean() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public int asInt() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public long asLong() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public BigInteger asBigInteger() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public double asDouble() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public BigDecimal asBigDecimal() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public JsonObjectBase<JavaJsonValue> asObject() {
+    return this;
+  }
+
+  @Override
+  public JsonArrayBase<JavaJsonValue> asArray() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public JavaJsonValue asValue() {
+    return new JavaJsonValue(map);
+  }
+
+  @Override
+  public String toJson() {
+    return asValue().toJson();
+  }
+
+  @Override
+  public int hashCode() {
+    return map.hashCode();
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (!(o instanceof JavaJsonObject)) return false;
+    return map.equals(((JavaJsonObject) o).map);
+  }
+
+  @Override
+  public String toString() {
+    return toJson();
+  }
+
+}
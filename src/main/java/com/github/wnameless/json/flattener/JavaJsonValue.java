@@ -0,0 +1,235 @@
+/*
+ *
+ * Copyright 2026 Wei-Ming Wu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package com.github.wnameless.json.flattener;
+
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import com.github.wnameless.json.base.JsonArrayBase;
+import com.github.wnameless.json.base.JsonObjectBase;
+import com.github.wnameless.json.base.JsonValueBase;
+import com.github.wnameless.json.base.JsonValueUtils;
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ *
+ * {@link JavaJsonValue} wraps a plain Java object graph as a {@link JsonValueBase}, so it can be
+ * flattened in place without being serialized into a JSON string and parsed back. A Map is a JSON
+ * object, a Collection or a Java array is a JSON array, and a CharSequence, a Character or an Enum
+ * is a JSON string. Any other object, such as a POJO, is converted into Maps and Lists by Jackson
+ * when it is reached.<br>
+ * <br>
+ * Numbers are flattened into the same Java types as the ones of the parsed JSON of the object
+ * graph, so both ways produce the same flattened Map.<br>
+ * <br>
+ * The object graph is never modified. Maps, Lists, Strings, Booleans and Numbers are wrapped as
+ * they are and object arrays are viewed as Lists without being copied. Every other value is
+ * converted when it is reached: any other CharSequence, a Character, an Enum, a char array and a
+ * byte array become Strings, any other Collection and primitive array are copied into a new
+ * ArrayList, and a POJO is converted into new Maps and Lists by Jackson.
+ *
+ * @author Wei-Ming Wu
+ *
+ */
+public final class JavaJsonValue implements JsonValueBase<JavaJsonValue> {
+
+  private static final JsonMapper mapper = new JsonMapper();
+
+  private final Object value;
+
+  /**
+   * Creates a {@link JavaJsonValue} by given Java object.
+   *
+   * @param value a Map, a Collection, a Java array, a CharSequence, a Boolean, a Number, a POJO or
+   *        null
+   */
+  public JavaJsonValue(Object value) {
+    this.value = normalize(value);
+  }
+
+  private static Object normalize(Object value) {
+    if (value == null || value instanceof String || value instanceof Boolean
+        || value instanceof Number || value instanceof Map || value instanceof List) {
+      return value;
+    } else if (value instanceof CharSequence || value instanceof Character) {
+      return value.toString();
+    } else if (value instanceof Enum) {
+      return ((Enum<?>) value).name();
+    } else if (value instanceof Collection) {
+      return new ArrayList<>((Collection<?>) value);
+    } else if (value instanceof Object[]) {
+      return Arrays.asList((Object[]) value);
+    } else if (value instanceof char[]) {
+      return new String((char[]) value);
+    } else if (value instanceof byte[]) {
+      // Same as the Base64 string Jackson writes for a byte array
+      return Base64.getEncoder().encodeToString((byte[]) value);
+    } else if (value.getClass().isArray()) {
+      int length = Array.getLength(value);
+      List<Object> list = new ArrayList<>(length);
+      for (int i = 0; i < length; i++) {
+        list.add(Array.get(value, i));
+      }
+      return list;
+    } else {
+      return normalize(mapper.convertValue(value, Object.class));
+    }
+  }
+
+  /**
+   * Returns the normalized Java object wrapped by this {@link JavaJsonValue}, which is a Map, a
+   * List, a String, a Boolean, a Number or null.
+   *
+   * @return the wrapped Java object
+   */
+  public Object getSource() {
+    return value;
+  }
+
+  @Override
+  public boolean isObject() {
+    return value instanceof Map;
+  }
+
+  @Override
+  public boolean isArray() {
+    return value instanceof List;
+  }
+
+  @Override
+  public boolean isString() {
+    return value instanceof String;
+  }
+
+  @Override
+  public boolean isBoolean() {
+    return value instanceof Boolean;
+  }
+
+  @Override
+  public boolean isNumber() {
+    return value instanceof Number;
+  }
+
+  @Override
+  public boolean isNull() {
+    return value == null;
+  }
+
+  @Override
+  public String asString() {
+    return String.valueOf(value);
+  }
+
+  @Override
+  public boolean asBoolean() {
+    return (Boolean) value;
+  }
+
+  @Override
+  public int asInt() {
+    return ((Number) value).intValue();
+  }
+
+  @Override
+  public long asLong() {
+    return ((Number) value).longValue();
+  }
+
+  @Override
+  public BigInteger asBigInteger() {
+    return asBigDecimal().toBigInteger();
+  }
+
+  @Override
+  public double asDouble() {
+    return ((Number) value).doubleValue();
+  }
+
+  @Override
+  public BigDecimal asBigDecimal() {
+    Number number = (Number) value;
+    if (number instanceof BigInteger) return new BigDecimal((BigInteger) number);
+    if (isIntegral(number)) return BigDecimal.valueOf(number.longValue());
+    if (number instanceof Double) return BigDecimal.valueOf(number.doubleValue());
+    // A parsed JSON decimal is read as the double of its text, which is Number#toString here
+    return BigDecimal.valueOf(Double.parseDouble(number.toString()));
+  }
+
+  @Override
+  public Number asNumber() {
+    Number number = (Number) value;
+    if (number instanceof Integer) return number;
+    if (isIntegral(number)) {
+      long l = number.longValue();
+      if (l == (int) l) return (int) l;
+      return l;
+    }
+    return JsonValueUtils.toJavaNumber(asBigDecimal());
+  }
+
+  private static boolean isIntegral(Number number) {
+    return number instanceof Long || number instanceof Short || number instanceof Byte
+        || number instanceof AtomicInteger || number instanceof AtomicLong;
+  }
+
+  @Override
+  public JsonObjectBase<JavaJsonValue> asObject() {
+    return new JavaJsonObject((Map<?, ?>) value);
+  }
+
+  @Override
+  public JsonArrayBase<JavaJsonValue> asArray() {
+    return new JavaJsonArray((List<?>) value);
+  }
+
+  @Override
+  public JavaJsonValue asValue() {
+    return this;
+  }
+
+  @Override
+  public String toJson() {
+    return mapper.writeValueAsString(value);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hashCode(value);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (!(o instanceof JavaJsonValue)) return false;
+    return Objects.equals(value, ((JavaJsonValue) o).value);
+  }
+
+  @Override
+  public String toString() {
+    return toJson();
+  }
+
+}
@@ -15,18 +15,37 @@
  */
 package com.github.wnameless.json.flattener;
 
-import static com.github.wnameless.json.flattener.FlattenMode.MONGODB;
 import static com.github.wnameless.json.flattener.IndexedPeekIterator.newIndexedPeekIterator;
 import static java.util.Collections.EMPTY_MAP;
 import static org.apache.commons.lang3.Validate.isTrue;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap.SimpleImmutableEntry;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.regex.Pattern;
-import org.apache.commons.lang3.StringUtils;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import com.github.wnameless.json.base.Jackson3JsonCore;
 import com.github.wnameless.json.base.JsonCore;
 import com.github.wnameless.json.base.JsonValueBase;
@@ -109,11 +128,19 @@ public final class JsonFlattener {
     return new JsonFlattener(json).flattenAsMap();
   }
 
-  private static final JsonCore<?> jsonCore = new Jackson3JsonCore();
+  private static final JsonCore<?> defaultJsonCore = new Jackson3JsonCore();
+  private static final int DEFAULT_PARALLEL_THRESHOLD = 1024;
   private final Deque<IndexedPeekIterator<?>> elementIters = new ArrayDeque<>();
-  private final JsonValueBase<?> source;
+  private JsonValueBase<?> source;
+  private JsonCore<?> jsonCore = defaultJsonCore;
 
   private JsonifyLinkedHashMap<String, Object> flattenedMap;
+  private FlattenedKeyBuilder keys;
+  private FlattenedKeyBuilder reusedKeys;
+  private KeyProjection.Cursor cursor;
+  // The state of keepArray(JsonValueBase), which is reused by every kept array
+  private final Deque<KeptFrame> keptFrames = new ArrayDeque<>();
+  private final List<FlattenedKeyBuilder> keptKeys = new ArrayList<>();
 
   private FlattenMode flattenMode = FlattenMode.NORMAL;
   private CharSequenceTranslatorFactory policy = StringEscapePolicy.DEFAULT;
@@ -121,21 +148,60 @@ public final class JsonFlattener {
   private Character leftBracket = '[';
   private Character rightBracket = ']';
   private PrintMode printMode = PrintMode.MINIMAL;
+  private String indent = PrettyJsonWriter.DEFAULT_INDENT;
   private KeyTransformer keyTrans = null;
   private boolean ignoreReservedCharacters = false;
+  private ForkJoinPool forkJoinPool = null;
+  private int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+  private List<String> includedKeys = Collections.emptyList();
+  private List<String> excludedKeys = Collections.emptyList();
+  private KeyProjection projection = null;
 
   private JsonFlattener newJsonFlattener(JsonValueBase<?> jsonVal) {
+    // The configuration of this JsonFlattener has been validated already
     JsonFlattener jf = new JsonFlattener(jsonVal);
-    jf.withFlattenMode(flattenMode);
-    jf.withStringEscapePolicy(policy);
-    jf.withSeparator(separator);
-    jf.withLeftAndRightBrackets(leftBracket, rightBracket);
-    jf.withPrintMode(printMode);
-    jf.withKeyTransformer(keyTrans);
-    if (ignoreReservedCharacters) jf.ignoreReservedCharacters();
+    jf.flattenMode = flattenMode;
+    jf.policy = policy;
+    jf.separator = separator;
+    jf.leftBracket = leftBracket;
+    jf.rightBracket = rightBracket;
+    jf.printMode = printMode;
+    jf.indent = indent;
+    jf.keyTrans = keyTrans;
+    jf.ignoreReservedCharacters = ignoreReservedCharacters;
+    jf.jsonCore = jsonCore;
+    jf.includedKeys = includedKeys;
+    jf.excludedKeys = excludedKeys;
+    jf.projection = projection;
+    // Nested flatteners work within a parallel task already, so they stay sequential
     return jf;
   }
 
+  JsonFlattener(JsonValueBase<?> json, JsonFlattenerEngine engine) {
+    source = json;
+    jsonCore = engine.jsonCore.orElse(defaultJsonCore);
+    flattenMode = engine.flattenMode;
+    policy = engine.policy;
+    separator = engine.separator;
+    leftBracket = engine.leftBracket;
+    rightBracket = engine.rightBracket;
+    printMode = engine.printMode;
+    indent = engine.indent;
+    keyTrans = engine.keyTrans;
+    ignoreReservedCharacters = engine.ignoreReservedCharacters;
+    forkJoinPool = engine.forkJoinPool;
+    parallelThreshold = engine.parallelThreshold;
+    includedKeys = engine.includedKeys;
+    excludedKeys = engine.excludedKeys;
+    projection = engine.projection;
+  }
+
+  JsonFlattenerEngine compile(Optional<JsonCore<?>> jsonCore) {
+    return new JsonFlattenerEngine(flattenMode, policy, separator, leftBracket, rightBracket,
+        printMode, indent, keyTrans, ignoreReservedCharacters, forkJoinPool, parallelThreshold,
+        includedKeys, excludedKeys, projection, jsonCore);
+  }
+
   /**
    * Creates a JSON flattener by given {@link JsonValueBase}.
    * 
@@ -147,13 +213,18 @@ public final class JsonFlattener {
   }
 
   /**
-   * Creates a JSON flattener by given {@link JsonCore} and {@link JsonValueBase}.
+   * Creates a JSON flattener by given {@link JsonCore} and {@link JsonValueBase}. The
+   * {@link JsonValueBase} is flattened in place, whichever JSON library it comes from, and the
+   * {@link JsonCore} parses the JSON strings and readers given to {@link #reset(String)} and
+   * {@link #reset(Reader)}.
    * 
    * @param jsonCore a {@link JsonCore}
-   * @param json a JSON string
+   * @param json a {@link JsonValueBase}
    */
   public JsonFlattener(JsonCore<?> jsonCore, JsonValueBase<?> json) {
-    source = jsonCore.parse(json.toJson());
+    if (jsonCore == null || json == null) throw new NullPointerException();
+    this.jsonCore = jsonCore;
+    source = json;
   }
 
   /**
@@ -162,7 +233,7 @@ public final class JsonFlattener {
    * @param json a JSON string
    */
   public JsonFlattener(String json) {
-    source = jsonCore.parse(json);
+    source = defaultJsonCore.parse(json);
   }
 
   /**
@@ -172,6 +243,7 @@ public final class JsonFlattener {
    * @param json a JSON string
    */
   public JsonFlattener(JsonCore<?> jsonCore, String json) {
+    this.jsonCore = jsonCore;
     source = jsonCore.parse(json);
   }
 
@@ -182,7 +254,7 @@ public final class JsonFlattener {
    * @throws IOException if the jsonReader cannot be read
    */
   public JsonFlattener(Reader jsonReader) throws IOException {
-    source = jsonCore.parse(jsonReader);
+    source = defaultJsonCore.parse(jsonReader);
   }
 
   /**
@@ -193,9 +265,51 @@ public final class JsonFlattener {
    * @throws IOException if the jsonReader cannot be read
    */
   public JsonFlattener(JsonCore<?> jsonCore, Reader jsonReader) throws IOException {
+    this.jsonCore = jsonCore;
     source = jsonCore.parse(jsonReader);
   }
 
+  /**
+   * Replaces the JSON of this {@link JsonFlattener} with the given {@link JsonValueBase}, so the
+   * same {@link JsonFlattener} can flatten any number of documents one after another. The
+   * configuration and the internal buffers are kept, only the cached result is dropped. A Map
+   * returned by {@link #flattenAsMap()} before is left untouched.
+   * 
+   * @param json a {@link JsonValueBase}
+   * @return this {@link JsonFlattener}
+   */
+  public JsonFlattener reset(JsonValueBase<?> json) {
+    if (json == null) throw new NullPointerException();
+    source = json;
+    flattenedMap = null;
+    return this;
+  }
+
+  /**
+   * Replaces the JSON of this {@link JsonFlattener} with the given JSON string, which is parsed by
+   * the {@link JsonCore} of this {@link JsonFlattener}.
+   * 
+   * @param json a JSON string
+   * @return this {@link JsonFlattener}
+   * @see #reset(JsonValueBase)
+   */
+  public JsonFlattener reset(String json) {
+    return reset(jsonCore.parse(json));
+  }
+
+  /**
+   * Replaces the JSON of this {@link JsonFlattener} with the given JSON reader, which is parsed by
+   * the {@link JsonCore} of this {@link JsonFlattener}.
+   * 
+   * @param jsonReader a JSON reader
+   * @return this {@link JsonFlattener}
+   * @throws IOException if the jsonReader cannot be read
+   * @see #reset(JsonValueBase)
+   */
+  public JsonFlattener reset(Reader jsonReader) throws IOException {
+    return reset(jsonCore.parse(jsonReader));
+  }
+
   /**
    * A fluent setter to setup a mode of the {@link JsonFlattener}.
    * 
@@ -205,7 +319,10 @@ public final class JsonFlattener {
   public JsonFlattener withFlattenMode(FlattenMode flattenMode) {
     if (flattenMode == null) throw new NullPointerException();
     this.flattenMode = flattenMode;
+    updateProjection();
     flattenedMap = null;
+    reusedKeys = null;
+    keptKeys.clear();
     return this;
   }
 
@@ -237,7 +354,10 @@ public final class JsonFlattener {
         "Separator(%s) is already used in brackets", separatorStr);
 
     this.separator = separator;
+    updateProjection();
     flattenedMap = null;
+    reusedKeys = null;
+    keptKeys.clear();
     return this;
   }
 
@@ -264,7 +384,10 @@ public final class JsonFlattener {
 
     this.leftBracket = leftBracket;
     this.rightBracket = rightBracket;
+    updateProjection();
     flattenedMap = null;
+    reusedKeys = null;
+    keptKeys.clear();
     return this;
   }
 
@@ -281,6 +404,19 @@ public final class JsonFlattener {
     return this;
   }
 
+  /**
+   * A fluent setter to setup the indent of {@link PrintMode#PRETTY} of the {@link JsonFlattener}.
+   * The default indent is 2 spaces.
+   * 
+   * @param indent an indent which consists of spaces and tabs only
+   * @return this {@link JsonFlattener}
+   */
+  public JsonFlattener withIndent(String indent) {
+    PrettyJsonWriter.validateIndent(indent);
+    this.indent = indent;
+    return this;
+  }
+
   /**
    * A fluent setter to setup a {@link KeyTransformer} of the {@link JsonFlattener}.
    * 
@@ -290,9 +426,111 @@ public final class JsonFlattener {
   public JsonFlattener withKeyTransformer(KeyTransformer keyTrans) {
     this.keyTrans = keyTrans;
     flattenedMap = null;
+    reusedKeys = null;
+    keptKeys.clear();
+    return this;
+  }
+
+  /**
+   * A fluent setter to setup a {@link ForkJoinPool} of the {@link JsonFlattener}. If a
+   * {@link ForkJoinPool} is given, {@link #flattenAsMap()} and {@link #flatten()} split a top-level
+   * object or array, which has at least as many members or elements as the parallel threshold,
+   * into chunks and flatten them in the pool. The result is identical to the sequential one,
+   * including the order of its keys. The default is null, which flattens sequentially.
+   * 
+   * @param forkJoinPool any {@link ForkJoinPool}, such as {@link ForkJoinPool#commonPool()}, or
+   *        null
+   * @return this {@link JsonFlattener}
+   */
+  public JsonFlattener withForkJoinPool(ForkJoinPool forkJoinPool) {
+    this.forkJoinPool = forkJoinPool;
+    return this;
+  }
+
+  /**
+   * A fluent setter to setup the minimal number of members or elements of a top-level object or
+   * array to be flattened in parallel. The default threshold is 1024.
+   * 
+   * @param parallelThreshold a positive number
+   * @return this {@link JsonFlattener}
+   * @see #withForkJoinPool(ForkJoinPool)
+   */
+  public JsonFlattener withParallelThreshold(int parallelThreshold) {
+    isTrue(parallelThreshold > 0, "Parallel threshold must be positive");
+    this.parallelThreshold = parallelThreshold;
+    return this;
+  }
+
+  /**
+   * A fluent setter to setup the included key patterns of the {@link JsonFlattener}. Only the
+   * flattened keys which match any of the patterns are kept. A pattern is written like a flattened
+   * key and it matches a key as a whole or the leading key parts of a key, so including a key
+   * includes the whole subtree under it. Besides, a key part of {@code *} matches any object key, a
+   * key part like {@code item*} matches object keys like a glob and an index of {@code [*]} matches
+   * any array index, such as {@code payload.items[*].sku}. In {@link FlattenMode#MONGODB},
+   * {@code *} matches any object key or array index.<br>
+   * <br>
+   * The subtrees which cannot contain any included key are skipped during the traversal, so they
+   * are never flattened. The arrays kept by {@link FlattenMode#KEEP_ARRAYS} and
+   * {@link FlattenMode#KEEP_PRIMITIVE_ARRAYS} are matched by their own keys. By default, all keys
+   * are included.
+   * 
+   * @param patterns the included key patterns, none to include all keys
+   * @return this {@link JsonFlattener}
+   * @throws IllegalArgumentException if any pattern is malformed
+   */
+  public JsonFlattener withIncludedKeys(String... patterns) {
+    List<String> keys = Collections.unmodifiableList(new ArrayList<>(Arrays.asList(patterns)));
+    if (keys.contains(null)) throw new NullPointerException();
+    List<String> oldKeys = includedKeys;
+    includedKeys = keys;
+    try {
+      updateProjection();
+    } catch (IllegalArgumentException e) {
+      includedKeys = oldKeys;
+      throw e;
+    }
+    flattenedMap = null;
     return this;
   }
 
+  /**
+   * A fluent setter to setup the excluded key patterns of the {@link JsonFlattener}. The flattened
+   * keys which match any of the patterns are dropped, along with the whole subtrees under them,
+   * which are never traversed. The patterns are written as the ones of
+   * {@link #withIncludedKeys(String...)} and an excluded pattern wins over an included one.
+   * 
+   * @param patterns the excluded key patterns, none to exclude nothing
+   * @return this {@link JsonFlattener}
+   * @throws IllegalArgumentException if any pattern is malformed
+   */
+  public JsonFlattener withExcludedKeys(String... patterns) {
+    List<String> keys = Collections.unmodifiableList(new ArrayList<>(Arrays.asList(patterns)));
+    if (keys.contains(null)) throw new NullPointerException();
+    List<String> oldKeys = excludedKeys;
+    excludedKeys = keys;
+    try {
+      updateProjection();
+    } catch (IllegalArgumentException e) {
+      excludedKeys = oldKeys;
+      throw e;
+    }
+    flattenedMap = null;
+    return this;
+  }
+
+  // The cursor of a previous projection is dropped along with it
+  private void updateProjection() {
+    projection = newKeyProjection();
+    cursor = null;
+  }
+
+  private KeyProjection newKeyProjection() {
+    if (includedKeys.isEmpty() && excludedKeys.isEmpty()) return null;
+    return new KeyProjection(flattenMode, separator, leftBracket, rightBracket, includedKeys,
+        excludedKeys);
+  }
+
   /**
    * After this option is enable, all reserved characters used in keys will stop to be checked and
    * escaped. <br>
@@ -310,6 +548,8 @@ public final class JsonFlattener {
    */
   public JsonFlattener ignoreReservedCharacters() {
     ignoreReservedCharacters = true;
+    reusedKeys = null;
+    keptKeys.clear();
     return this;
   }
 
@@ -321,14 +561,63 @@ public final class JsonFlattener {
   public String flatten() {
     flattenAsMap();
 
-    if (source.isObject() || isObjectifiableArray())
-      return flattenedMap.toString(printMode);
+    if (source.isObject() || isObjectifiable())
+      return flattenedMap.toString(printMode, indent);
     else
       return javaObj2Json(flattenedMap.get(ROOT));
   }
 
-  private boolean isObjectifiableArray() {
-    return source.isArray() && !flattenedMap.containsKey(ROOT);
+  /**
+   * Writes the flattened JSON into the given {@link Appendable}, such as a {@link Writer} or a
+   * {@link StringBuilder}. Flattened key/value pairs are written as soon as they are computed, no
+   * flattened Map or String is built along the way. The output is identical to {@link #flatten()}
+   * and the {@link Appendable} is neither flushed nor closed.<br>
+   * <br>
+   * Two members may be flattened into the same key if {@link #ignoreReservedCharacters()} is
+   * enabled, a {@link KeyTransformer} is set or the {@link FlattenMode#MONGODB} is used, since it
+   * doesn't wrap empty keys. In that case the flattened Map is built first, so the last value of a
+   * duplicate key is written once, as {@link #flatten()} does.
+   * 
+   * @param out the {@link Appendable} of the flattened JSON
+   * @throws IOException if the out cannot be appended
+   */
+  public void flatten(Appendable out) throws IOException {
+    if (out == null) throw new NullPointerException();
+    if (mayDuplicateKeys()) flattenAsMap();
+    Writer writer = FlattenedJsonWriter.asWriter(out);
+    if (printMode == PrintMode.PRETTY) writer = new PrettyJsonWriter(writer, indent);
+
+    FlattenedJsonWriter jsonWriter =
+        new FlattenedJsonWriter(writer, policy.getCharSequenceTranslator(), source.isObject());
+    try {
+      flattenTo(jsonWriter);
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    jsonWriter.close();
+  }
+
+  /**
+   * Writes the flattened JSON into the given {@link OutputStream} in UTF-8. The output is identical
+   * to {@link #flatten()}, the {@link OutputStream} is flushed but not closed.
+   * 
+   * @param out the {@link OutputStream} of the flattened JSON
+   * @throws IOException if the out cannot be written
+   */
+  public void flatten(OutputStream out) throws IOException {
+    if (out == null) throw new NullPointerException();
+    Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    flatten(writer);
+    writer.flush();
+  }
+
+  private boolean mayDuplicateKeys() {
+    return ignoreReservedCharacters || keyTrans != null || flattenMode == FlattenMode.MONGODB;
+  }
+
+  // An array, or a value dropped by the projection, is flattened into an object without ROOT
+  private boolean isObjectifiable() {
+    return !flattenedMap.containsKey(ROOT);
   }
 
   private String javaObj2Json(Object obj) {
@@ -337,12 +626,12 @@ public final class JsonFlattener {
     } else if (obj instanceof CharSequence) {
       StringBuilder sb = new StringBuilder();
       sb.append('"');
-      sb.append(policy.getCharSequenceTranslator().translate((CharSequence) obj));
+      sb.append(JsonStringEscaper.escape(policy.getCharSequenceTranslator(), (CharSequence) obj));
       sb.append('"');
       return sb.toString();
     } else if (obj instanceof JsonifyArrayList) {
       JsonifyArrayList<?> list = (JsonifyArrayList<?>) obj;
-      return list.toString(printMode);
+      return list.toString(printMode, indent);
     } else {
       return obj.toString();
     }
@@ -356,140 +645,432 @@ public final class JsonFlattener {
   public Map<String, Object> flattenAsMap() {
     if (flattenedMap != null) return flattenedMap;
 
-    flattenedMap = newJsonifyLinkedHashMap();
-    reduce(source);
-
-    while (!elementIters.isEmpty()) {
-      IndexedPeekIterator<?> deepestIter = elementIters.getLast();
-      if (!deepestIter.hasNext()) {
-        elementIters.removeLast();
-      } else if (deepestIter.peek() instanceof Entry) {
-        @SuppressWarnings("unchecked")
-        Entry<String, ? extends JsonValueBase<?>> mem =
-            (Entry<String, ? extends JsonValueBase<?>>) deepestIter.next();
-        reduce(mem.getValue());
-      } else { // JsonValue
-        JsonValueBase<?> val = (JsonValueBase<?>) deepestIter.next();
-        reduce(val);
+    JsonifyLinkedHashMap<String, Object> map = newJsonifyLinkedHashMap();
+    List<?> children = forkJoinPool == null ? null : parallelChildren();
+    if (children == null) {
+      flattenTo(map::put);
+    } else {
+      int chunkSize = Math.max(1, children.size() / (forkJoinPool.getParallelism() * 4));
+      @SuppressWarnings({"rawtypes", "unchecked"})
+      Map<String, Object>[] chunks = new Map[(children.size() + chunkSize - 1) / chunkSize];
+      forkJoinPool.invoke(new FlattenTask(children, chunkSize, chunks, 0, chunks.length));
+      // Same key order and same value of any duplicate key as the sequential flattening
+      for (Map<String, Object> chunk : chunks) {
+        map.putAll(chunk);
       }
     }
+    flattenedMap = map;
 
     return flattenedMap;
   }
 
-  private void reduce(JsonValueBase<?> val) {
+  /**
+   * Passes every flattened key/value pair to the given {@link FlattenedEntryConsumer} as soon as it
+   * is computed, no flattened Map is built along the way. The pairs are passed in the same order as
+   * they appear in the Map returned by {@link #flattenAsMap()}.
+   * 
+   * @param consumer a {@link FlattenedEntryConsumer}
+   */
+  public void flattenTo(FlattenedEntryConsumer consumer) {
+    if (consumer == null) throw new NullPointerException();
+    if (flattenedMap != null) {
+      flattenedMap.forEach(consumer::accept);
+      return;
+    }
+
+    // The key builder and the cursor are reused by every traversal of this JsonFlattener
+    if (reusedKeys == null) reusedKeys = newFlattenedKeyBuilder();
+    reusedKeys.clear();
+    if (cursor == null && projection != null) cursor = projection.newCursor();
+    traverse(source, reusedKeys, consumer);
+  }
+
+  /**
+   * Lets this {@link JsonFlattener} build its keys with the given {@link FlattenedKeyBuilder},
+   * which must be made with the same configuration, instead of creating a new one per traversal.
+   *
+   * @param keys a {@link FlattenedKeyBuilder} which is not used by any other thread
+   */
+  void shareKeys(FlattenedKeyBuilder keys) {
+    reusedKeys = keys;
+  }
+
+  private FlattenedKeyBuilder newFlattenedKeyBuilder() {
+    return new FlattenedKeyBuilder(flattenMode, separator, leftBracket, rightBracket, keyTrans,
+        ignoreReservedCharacters);
+  }
+
+  // Flattens the given value whose own key parts are already appended to the given keys
+  private void traverse(JsonValueBase<?> root, FlattenedKeyBuilder keys,
+      FlattenedEntryConsumer consumer) {
+    elementIters.clear();
+    this.keys = keys;
+    int baseDepth = keys.depth();
+    reduce(root, consumer);
+
+    while (step(baseDepth, consumer)) {}
+  }
+
+  // Takes a single step of the traversal, which emits one key/value pair at most
+  private boolean step(int baseDepth, FlattenedEntryConsumer consumer) {
+    if (elementIters.isEmpty()) return false;
+
+    IndexedPeekIterator<?> deepestIter = elementIters.getLast();
+    // The key part of the previous element of the deepest iterator is still appended
+    boolean hasKeyPart = keys.depth() == baseDepth + elementIters.size();
+    if (!deepestIter.hasNext()) {
+      if (hasKeyPart) keys.pop();
+      elementIters.removeLast();
+    } else if (deepestIter.peek() instanceof Entry) {
+      @SuppressWarnings("unchecked")
+      Entry<String, ? extends JsonValueBase<?>> mem =
+          (Entry<String, ? extends JsonValueBase<?>>) deepestIter.next();
+      if (hasKeyPart) keys.pop();
+      if (pushKey(mem.getKey())) reduce(mem.getValue(), consumer);
+    } else { // JsonValue
+      JsonValueBase<?> val = (JsonValueBase<?>) deepestIter.next();
+      if (hasKeyPart) keys.pop();
+      if (pushIndex(deepestIter.getIndex())) reduce(val, consumer);
+    }
+    return true;
+  }
+
+  // Appends the key part of a member unless the projection skips the member with its subtree
+  private boolean pushKey(String key) {
+    if (cursor == null) {
+      keys.pushKey(key);
+      return true;
+    }
+
+    String transformedKey = keys.transformKey(key);
+    if (!cursor.enterKey(keys.depth(), transformedKey)) return false;
+    keys.pushTransformedKey(transformedKey);
+    return true;
+  }
+
+  // Appends the key part of an element unless the projection skips the element with its subtree
+  private boolean pushIndex(int index) {
+    if (cursor != null && !cursor.enterIndex(keys.depth(), index)) return false;
+    keys.pushIndex(index);
+    return true;
+  }
+
+  // Checks if the current key is kept by the projection
+  private boolean isIncluded() {
+    return cursor == null || cursor.includes(keys.depth());
+  }
+
+  /**
+   * Returns an Iterator of the flattened key/value pairs, which flattens the JSON lazily. Every
+   * {@link Iterator#next()} only walks the JSON as far as the next pair, so an Iterator which is
+   * not exhausted doesn't flatten the rest of the JSON. The pairs are returned in the same order as
+   * they appear in the Map returned by {@link #flattenAsMap()}.
+   * 
+   * @return an Iterator of the flattened key/value pairs
+   */
+  public Iterator<Entry<String, Object>> flattenAsIterator() {
+    if (flattenedMap != null) {
+      return Collections.unmodifiableMap(flattenedMap).entrySet().iterator();
+    }
+    return newJsonFlattener(source).new FlattenedEntryIterator();
+  }
+
+  /**
+   * Returns an ordered sequential Stream of the flattened key/value pairs, which flattens the JSON
+   * lazily. Short-circuiting operations such as {@link Stream#limit(long)} or
+   * {@link Stream#anyMatch(java.util.function.Predicate)} stop flattening as soon as they are done.
+   * 
+   * @return a Stream of the flattened key/value pairs
+   * @see #flattenAsIterator()
+   */
+  public Stream<Entry<String, Object>> flattenAsStream() {
+    return StreamSupport.stream(Spliterators.spliteratorUnknownSize(flattenAsIterator(),
+        Spliterator.ORDERED | Spliterator.NONNULL), false);
+  }
+
+  /**
+   * {@link FlattenedEntryIterator} drives the traversal of its own {@link JsonFlattener} one step
+   * at a time until a key/value pair is emitted.
+   */
+  private final class FlattenedEntryIterator implements Iterator<Entry<String, Object>> {
+
+    private final Deque<Entry<String, Object>> pending = new ArrayDeque<>();
+    private final FlattenedEntryConsumer sink =
+        (key, value) -> pending.add(new SimpleImmutableEntry<>(key, value));
+    private boolean started = false;
+
+    @Override
+    public boolean hasNext() {
+      if (!started) {
+        started = true;
+        elementIters.clear();
+        keys = newFlattenedKeyBuilder();
+        cursor = projection == null ? null : projection.newCursor();
+        reduce(source, sink);
+      }
+      while (pending.isEmpty() && step(0, sink)) {}
+      return !pending.isEmpty();
+    }
+
+    @Override
+    public Entry<String, Object> next() {
+      if (!hasNext()) throw new NoSuchElementException();
+      return pending.poll();
+    }
+
+  }
+
+  // Returns the top-level members or elements to flatten in parallel, or null to stay sequential
+  private List<?> parallelChildren() {
+    if (source.isObject()) {
+      if (source.asObject().size() < parallelThreshold) return null;
+
+      List<Object> members = new ArrayList<>(source.asObject().size());
+      source.asObject().forEach(members::add);
+      return members;
+    } else if (source.isArray()) {
+      if (source.asArray().size() < parallelThreshold) return null;
+
+      // The top-level array is a single value
+      if (flattenMode == FlattenMode.KEEP_ARRAYS) return null;
+      if (flattenMode == FlattenMode.KEEP_PRIMITIVE_ARRAYS && isAllPrimitive(source)) return null;
+
+      List<Object> elements = new ArrayList<>(source.asArray().size());
+      source.asArray().forEach(elements::add);
+      return elements;
+    }
+    return null;
+  }
+
+  /**
+   * {@link FlattenTask} flattens a range of chunks of the top-level members or elements. Each chunk
+   * is flattened by its own {@link JsonFlattener} into its own Map.
+   */
+  private final class FlattenTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final List<?> children;
+    private final int chunkSize;
+    private final Map<String, Object>[] chunks;
+    private final int from;
+    private final int to;
+
+    private FlattenTask(List<?> children, int chunkSize, Map<String, Object>[] chunks, int from,
+        int to) {
+      this.children = children;
+      this.chunkSize = chunkSize;
+      this.chunks = chunks;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from > 1) {
+        int mid = (from + to) >>> 1;
+        invokeAll(new FlattenTask(children, chunkSize, chunks, from, mid),
+            new FlattenTask(children, chunkSize, chunks, mid, to));
+        return;
+      }
+
+      Map<String, Object> chunk = new LinkedHashMap<>();
+      JsonFlattener jf = newJsonFlattener(source);
+      FlattenedKeyBuilder keys = newFlattenedKeyBuilder();
+      jf.keys = keys;
+      jf.cursor = projection == null ? null : projection.newCursor();
+      int end = Math.min(children.size(), (from + 1) * chunkSize);
+      for (int i = from * chunkSize; i < end; i++) {
+        Object child = children.get(i);
+        JsonValueBase<?> val;
+        if (child instanceof Entry) {
+          @SuppressWarnings("unchecked")
+          Entry<String, ? extends JsonValueBase<?>> mem =
+              (Entry<String, ? extends JsonValueBase<?>>) child;
+          if (!jf.pushKey(mem.getKey())) continue;
+          val = mem.getValue();
+        } else {
+          if (!jf.pushIndex(i)) continue;
+          val = (JsonValueBase<?>) child;
+        }
+        jf.traverse(val, keys, chunk::put);
+        keys.pop();
+      }
+      chunks[from] = chunk;
+    }
+
+  }
+
+  private void reduce(JsonValueBase<?> val, FlattenedEntryConsumer consumer) {
     if (val.isObject() && val.asObject().iterator().hasNext()) {
       elementIters.add(newIndexedPeekIterator(val.asObject()));
     } else if (val.isArray() && val.asArray().iterator().hasNext()) {
       switch (flattenMode) {
         case KEEP_PRIMITIVE_ARRAYS:
-          boolean allPrimitive = true;
-          for (JsonValueBase<?> value : val.asArray()) {
-            if (value.isArray() || value.isObject()) {
-              allPrimitive = false;
-              break;
-            }
+          // Collects the leading primitives in a single pass, which are the whole array mostly
+          IndexedPeekIterator<? extends JsonValueBase<?>> elements =
+              newIndexedPeekIterator(val.asArray());
+          JsonifyArrayList<Object> primitives = newJsonifyArrayList();
+          while (elements.hasNext() && isPrimitive(elements.peek())) {
+            primitives.add(jsonVal2Obj(elements.next()));
           }
 
-          if (allPrimitive) {
-            JsonifyArrayList<Object> array = newJsonifyArrayList();
-            for (JsonValueBase<?> value : val.asArray()) {
-              array.add(jsonVal2Obj(value));
-            }
-            flattenedMap.put(computeKey(), array);
+          if (!elements.hasNext()) {
+            if (isIncluded()) consumer.accept(computeKey(), primitives);
           } else {
-            elementIters.add(newIndexedPeekIterator(val.asArray()));
+            // The collected primitives are flattened as they would be, then the rest of the array
+            for (int i = 0; i < primitives.size(); i++) {
+              if (!pushIndex(i)) continue;
+              if (isIncluded()) consumer.accept(computeKey(), primitives.get(i));
+              keys.pop();
+            }
+            elementIters.add(elements);
           }
           break;
         case KEEP_ARRAYS:
-          JsonifyArrayList<Object> array = newJsonifyArrayList();
-          for (JsonValueBase<?> value : val.asArray()) {
-            array.add(jsonVal2Obj(value));
-          }
-          flattenedMap.put(computeKey(), array);
+          if (isIncluded()) consumer.accept(computeKey(), keepArray(val));
           break;
         default:
           elementIters.add(newIndexedPeekIterator(val.asArray()));
       }
-    } else {
+    } else if (isIncluded()) {
       String key = computeKey();
       Object value = jsonVal2Obj(val);
       // Check NOT empty JSON object
       if (!ROOT.equals(key) || !EMPTY_MAP.equals(value)) {
-        flattenedMap.put(key, value);
+        consumer.accept(key, value);
       }
     }
   }
 
+  private static boolean isPrimitive(JsonValueBase<?> val) {
+    return !val.isObject() && !val.isArray();
+  }
+
+  private static boolean isAllPrimitive(JsonValueBase<?> array) {
+    for (JsonValueBase<?> value : array.asArray()) {
+      if (!isPrimitive(value)) return false;
+    }
+    return true;
+  }
+
   private Object jsonVal2Obj(JsonValueBase<?> val) {
     if (val.isBoolean()) return val.asBoolean();
     if (val.isString()) return val.asString();
     if (val.isNumber()) return val.asNumber();
 
-    switch (flattenMode) {
-      case KEEP_ARRAYS:
-        if (val.isArray()) {
-          JsonifyArrayList<Object> array = newJsonifyArrayList();
-          for (JsonValueBase<?> value : val.asArray()) {
-            array.add(jsonVal2Obj(value));
-          }
-          return array;
-        } else if (val.isObject()) {
-          if (val.asObject().iterator().hasNext()) {
-            return newJsonFlattener(val).flattenAsMap();
-          } else {
-            return newJsonifyLinkedHashMap();
-          }
-        }
-      default:
-        if (val.isArray()) {
-          return newJsonifyArrayList();
-        } else if (val.isObject()) {
-          return newJsonifyLinkedHashMap();
-        }
+    if (val.isArray()) {
+      if (flattenMode == FlattenMode.KEEP_ARRAYS && val.asArray().iterator().hasNext()) {
+        return keepArray(val);
+      }
+      return newJsonifyArrayList();
+    } else if (val.isObject()) {
+      return newJsonifyLinkedHashMap();
     }
 
     return null;
   }
 
-  private boolean hasReservedCharacters(String key) {
-    if (ignoreReservedCharacters) return false;
-    if (flattenMode.equals(MONGODB) && StringUtils.containsAny(key, separator))
-      throw new IllegalArgumentException(
-          "Key cannot contain separator(" + separator + ") in FlattenMode." + MONGODB);
+  /**
+   * {@link KeptFrame} is a container which is being copied by {@link #keepArray(JsonValueBase)}.
+   * An array is copied into its list, while an object is flattened into the map of the outermost
+   * object which contains it within a kept array.
+   */
+  private static final class KeptFrame {
+
+    private final Iterator<?> iter;
+    private final JsonifyArrayList<Object> list;
+    private final JsonifyLinkedHashMap<String, Object> map;
+    private final FlattenedKeyBuilder keys;
+    // Whether the map of this object is an element of a kept array
+    private final boolean outermost;
+    // Whether the key part of the current member is still appended to the keys
+    private boolean hasKeyPart = false;
+
+    private KeptFrame(Iterator<?> iter, JsonifyArrayList<Object> list,
+        JsonifyLinkedHashMap<String, Object> map, FlattenedKeyBuilder keys, boolean outermost) {
+      this.iter = iter;
+      this.list = list;
+      this.map = map;
+      this.keys = keys;
+      this.outermost = outermost;
+    }
 
-    return StringUtils.containsAny(key, separator, leftBracket, rightBracket);
   }
 
-  private String computeKey() {
-    if (elementIters.isEmpty()) return ROOT;
+  // Copies a non-empty array in a single iterative pass, every object within it is flattened on
+  // its own, so nested arrays of any depth cannot overflow the call stack
+  private JsonifyArrayList<Object> keepArray(JsonValueBase<?> array) {
+    JsonifyArrayList<Object> root = newJsonifyArrayList();
+    keptFrames.clear();
+    keptFrames.push(new KeptFrame(array.asArray().iterator(), root, null, null, false));
+    // The number of outermost objects being flattened, each of them has its own pooled keys
+    int objectDepth = 0;
+
+    while (!keptFrames.isEmpty()) {
+      KeptFrame frame = keptFrames.peek();
+      if (frame.list != null) {
+        if (!frame.iter.hasNext()) {
+          keptFrames.pop();
+          continue;
+        }
 
-    StringBuilder sb = new StringBuilder();
+        JsonValueBase<?> val = (JsonValueBase<?>) frame.iter.next();
+        if (val.isArray() && val.asArray().iterator().hasNext()) {
+          JsonifyArrayList<Object> list = newJsonifyArrayList();
+          frame.list.add(list);
+          keptFrames.push(new KeptFrame(val.asArray().iterator(), list, null, null, false));
+        } else if (val.isObject() && val.asObject().iterator().hasNext()) {
+          JsonifyLinkedHashMap<String, Object> map = newJsonifyLinkedHashMap();
+          frame.list.add(map);
+          if (objectDepth == keptKeys.size()) keptKeys.add(newFlattenedKeyBuilder());
+          FlattenedKeyBuilder keys = keptKeys.get(objectDepth++);
+          keys.clear();
+          keptFrames.push(new KeptFrame(val.asObject().iterator(), null, map, keys, true));
+        } else {
+          frame.list.add(jsonVal2Obj(val));
+        }
+      } else {
+        if (frame.hasKeyPart) {
+          frame.keys.pop();
+          frame.hasKeyPart = false;
+        }
+        if (!frame.iter.hasNext()) {
+          keptFrames.pop();
+          if (frame.outermost) objectDepth--;
+          continue;
+        }
 
-    for (IndexedPeekIterator<?> iter : elementIters) {
-      if (iter.getCurrent() instanceof Entry) {
         @SuppressWarnings("unchecked")
-        String key = ((Entry<String, ? extends JsonValueBase<?>>) iter.getCurrent()).getKey();
-        if (keyTrans != null) key = keyTrans.transform(key);
-        // Empty string or string with reserved characters must be wrapped in double quotes
-        if ((key.isEmpty() && !flattenMode.equals(MONGODB)) || hasReservedCharacters(key)) {
-          sb.append(leftBracket);
-          sb.append('"');
-          sb.append(key);
-          sb.append('"');
-          sb.append(rightBracket);
+        Entry<String, ? extends JsonValueBase<?>> mem =
+            (Entry<String, ? extends JsonValueBase<?>>) frame.iter.next();
+        JsonValueBase<?> val = mem.getValue();
+        frame.keys.pushKey(mem.getKey());
+        if (val.isObject() && val.asObject().iterator().hasNext()) {
+          // The key part is popped once all members of the nested object are flattened
+          frame.hasKeyPart = true;
+          keptFrames.push(
+              new KeptFrame(val.asObject().iterator(), null, frame.map, frame.keys, false));
+        } else if (val.isArray() && val.asArray().iterator().hasNext()) {
+          JsonifyArrayList<Object> list = newJsonifyArrayList();
+          frame.map.put(frame.keys.toString(), list);
+          frame.keys.pop();
+          keptFrames.push(new KeptFrame(val.asArray().iterator(), list, null, null, false));
         } else {
-          if (sb.length() != 0) sb.append(separator);
-          sb.append(key);
+          String key = frame.keys.toString();
+          Object value = jsonVal2Obj(val);
+          // Same as flattening the object on its own, which drops an empty JSON object of ROOT
+          if (!ROOT.equals(key) || !EMPTY_MAP.equals(value)) frame.map.put(key, value);
+          frame.keys.pop();
         }
-      } else { // JsonValue
-        sb.append(flattenMode.equals(MONGODB) ? separator : leftBracket);
-        sb.append(iter.getIndex());
-        sb.append(flattenMode.equals(MONGODB) ? "" : rightBracket);
       }
     }
 
-    return sb.toString();
+    return root;
+  }
+
+  private String computeKey() {
+    return keys.toString();
   }
 
   private <T> JsonifyArrayList<T> newJsonifyArrayList() {
@@ -0,0 +1,289 @@
+/*
+ *
+ * Copyright 2026 Wei-Ming Wu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package com.github.wnameless.json.flattener;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import com.github.wnameless.json.base.Jackson3JsonCore;
+import com.github.wnameless.json.base.JsonCore;
+import com.github.wnameless.json.base.JsonValueBase;
+
+/**
+ *
+ * {@link JsonFlattenerEngine} is an immutable snapshot of the configuration of a
+ * {@link JsonFlattener}, which is compiled by {@link JsonFlattenerFactory#compile()}. The
+ * configuration is validated once while compiling, so every flatten call only pays for the
+ * flattening itself.<br>
+ * <br>
+ * A {@link JsonFlattenerEngine} is thread-safe as long as its {@link JsonCore},
+ * {@link KeyTransformer} and {@link CharSequenceTranslatorFactory} are, which holds for all the
+ * built-in ones. A single engine can be shared by any number of threads.
+ *
+ * @author Wei-Ming Wu
+ *
+ */
+public final class JsonFlattenerEngine {
+
+  private static final JsonCore<?> defaultJsonCore = new Jackson3JsonCore();
+
+  final FlattenMode flattenMode;
+  final CharSequenceTranslatorFactory policy;
+  final char separator;
+  final char leftBracket;
+  final char rightBracket;
+  final PrintMode printMode;
+  final String indent;
+  final KeyTransformer keyTrans;
+  final boolean ignoreReservedCharacters;
+  final ForkJoinPool forkJoinPool;
+  final int parallelThreshold;
+  final List<String> includedKeys;
+  final List<String> excludedKeys;
+  final KeyProjection projection;
+  final Optional<JsonCore<?>> jsonCore;
+
+  JsonFlattenerEngine(FlattenMode flattenMode, CharSequenceTranslatorFactory policy,
+      char separator, char leftBracket, char rightBracket, PrintMode printMode, String indent,
+      KeyTransformer keyTrans, boolean ignoreReservedCharacters, ForkJoinPool forkJoinPool,
+      int parallelThreshold, List<String> includedKeys, List<String> excludedKeys,
+      KeyProjection projection, Optional<JsonCore<?>> jsonCore) {
+    this.flattenMode = flattenMode;
+    this.policy = policy;
+    this.separator = separator;
+    this.leftBracket = leftBracket;
+    this.rightBracket = rightBracket;
+    this.printMode = printMode;
+    this.indent = indent;
+    this.keyTrans = keyTrans;
+    this.ignoreReservedCharacters = ignoreReservedCharacters;
+    this.forkJoinPool = forkJoinPool;
+    this.parallelThreshold = parallelThreshold;
+    this.includedKeys = includedKeys;
+    this.excludedKeys = excludedKeys;
+    this.projection = projection;
+    this.jsonCore = jsonCore;
+  }
+
+  private JsonFlattener newJsonFlattener(String json) {
+    return new JsonFlattener(jsonCore.orElse(defaultJsonCore).parse(json), this);
+  }
+
+  // Any JsonValueBase is flattened in place, the JsonCore only parses JSON strings and readers
+  private JsonFlattener newJsonFlattener(JsonValueBase<?> json) {
+    if (json == null) throw new NullPointerException();
+    return new JsonFlattener(json, this);
+  }
+
+  private JsonFlattener newJsonFlattener(Reader jsonReader) throws IOException {
+    return new JsonFlattener(jsonCore.orElse(defaultJsonCore).parse(jsonReader), this);
+  }
+
+  /**
+   * Returns a flattened JSON string.
+   *
+   * @param json the JSON string
+   * @return a flattened JSON string
+   */
+  public String flatten(String json) {
+    return newJsonFlattener(json).flatten();
+  }
+
+  /**
+   * Returns a flattened JSON string.
+   *
+   * @param json a JSON data which wraps by {@link JsonValueBase}
+   * @return a flattened JSON string
+   */
+  public String flatten(JsonValueBase<?> json) {
+    return newJsonFlattener(json).flatten();
+  }
+
+  /**
+   * Returns a flattened JSON string.
+   *
+   * @param jsonReader a JSON reader
+   * @return a flattened JSON string
+   * @throws IOException if the jsonReader cannot be read
+   */
+  public String flatten(Reader jsonReader) throws IOException {
+    return newJsonFlattener(jsonReader).flatten();
+  }
+
+  /**
+   * Returns a flattened JSON as Map.
+   *
+   * @param json the JSON string
+   * @return a flattened JSON as Map
+   */
+  public Map<String, Object> flattenAsMap(String json) {
+    return newJsonFlattener(json).flattenAsMap();
+  }
+
+  /**
+   * Returns a flattened JSON as Map.
+   *
+   * @param json a JSON data which wraps by {@link JsonValueBase}
+   * @return a flattened JSON as Map
+   */
+  public Map<String, Object> flattenAsMap(JsonValueBase<?> json) {
+    return newJsonFlattener(json).flattenAsMap();
+  }
+
+  /**
+   * Returns a flattened JSON as Map.
+   *
+   * @param jsonReader a JSON reader
+   * @return a flattened JSON as Map
+   * @throws IOException if the jsonReader cannot be read
+   */
+  public Map<String, Object> flattenAsMap(Reader jsonReader) throws IOException {
+    return newJsonFlattener(jsonReader).flattenAsMap();
+  }
+
+  /**
+   * Passes every flattened key/value pair of the given JSON string to the given
+   * {@link FlattenedEntryConsumer}.
+   *
+   * @param json the JSON string
+   * @param consumer a {@link FlattenedEntryConsumer}
+   */
+  public void flattenTo(String json, FlattenedEntryConsumer consumer) {
+    newJsonFlattener(json).flattenTo(consumer);
+  }
+
+  /**
+   * Passes every flattened key/value pair of the given {@link JsonValueBase} to the given
+   * {@link FlattenedEntryConsumer}.
+   *
+   * @param json a JSON data which wraps by {@link JsonValueBase}
+   * @param consumer a {@link FlattenedEntryConsumer}
+   */
+  public void flattenTo(JsonValueBase<?> json, FlattenedEntryConsumer consumer) {
+    newJsonFlattener(json).flattenTo(consumer);
+  }
+
+  /**
+   * Returns the flattened JSON strings of the given JSON strings in the calling thread.
+   *
+   * @param jsons any JSON strings, such as a List or stream::iterator of a Stream
+   * @return a {@link BatchResult} per JSON string in the same order
+   * @see #flattenAll(Iterable, Executor)
+   */
+  public List<BatchResult<String>> flattenAll(Iterable<String> jsons) {
+    return flattenAll(jsons, null);
+  }
+
+  /**
+   * Returns the flattened JSON strings of the given JSON strings. The JSON strings are split into
+   * chunks by count and each chunk is flattened by the given {@link Executor}, reusing the same key
+   * buffers for all its JSON strings. An exception thrown by a JSON string is kept in its
+   * {@link BatchResult} and the rest of the batch goes on.
+   *
+   * @param jsons any JSON strings, such as a List or stream::iterator of a Stream
+   * @param executor an {@link Executor} or null to flatten in the calling thread
+   * @return a {@link BatchResult} per JSON string in the same order
+   */
+  public List<BatchResult<String>> flattenAll(Iterable<String> jsons, Executor executor) {
+    return batch(jsons, executor, JsonFlattener::flatten);
+  }
+
+  /**
+   * Returns the flattened JSON Maps of the given JSON strings in the calling thread.
+   *
+   * @param jsons any JSON strings, such as a List or stream::iterator of a Stream
+   * @return a {@link BatchResult} per JSON string in the same order
+   * @see #flattenAsMapAll(Iterable, Executor)
+   */
+  public List<BatchResult<Map<String, Object>>> flattenAsMapAll(Iterable<String> jsons) {
+    return flattenAsMapAll(jsons, null);
+  }
+
+  /**
+   * Returns the flattened JSON Maps of the given JSON strings. The JSON strings are split into
+   * chunks by count and each chunk is flattened by the given {@link Executor}, reusing the same key
+   * buffers for all its JSON strings. An exception thrown by a JSON string is kept in its
+   * {@link BatchResult} and the rest of the batch goes on.
+   *
+   * @param jsons any JSON strings, such as a List or stream::iterator of a Stream
+   * @param executor an {@link Executor} or null to flatten in the calling thread
+   * @return a {@link BatchResult} per JSON string in the same order
+   */
+  public List<BatchResult<Map<String, Object>>> flattenAsMapAll(Iterable<String> jsons,
+      Executor executor) {
+    return batch(jsons, executor, JsonFlattener::flattenAsMap);
+  }
+
+  private <T> List<BatchResult<T>> batch(Iterable<String> jsons, Executor executor,
+      Function<JsonFlattener, T> flattening) {
+    if (jsons == null) throw new NullPointerException();
+    List<String> inputs = new ArrayList<>();
+    jsons.forEach(inputs::add);
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    BatchResult<T>[] results = new BatchResult[inputs.size()];
+    if (executor == null) {
+      flattenChunk(inputs, 0, inputs.size(), results, flattening);
+    } else {
+      // The parallelism of the executor is unknown, so there are about as many chunks as JSON
+      // strings per chunk, which keeps any number of threads busy on a large batch
+      int chunkSize = Math.max(1, (int) Math.ceil(Math.sqrt(inputs.size())));
+      List<CompletableFuture<Void>> chunks = new ArrayList<>();
+      for (int from = 0; from < inputs.size(); from += chunkSize) {
+        int start = from;
+        int end = Math.min(inputs.size(), from + chunkSize);
+        chunks.add(CompletableFuture
+            .runAsync(() -> flattenChunk(inputs, start, end, results, flattening), executor));
+      }
+      CompletableFuture.allOf(chunks.toArray(new CompletableFuture<?>[0])).join();
+    }
+    return Arrays.asList(results);
+  }
+
+  private <T> void flattenChunk(List<String> inputs, int from, int to, BatchResult<T>[] results,
+      Function<JsonFlattener, T> flattening) {
+    FlattenedKeyBuilder keys = new FlattenedKeyBuilder(flattenMode, separator, leftBracket,
+        rightBracket, keyTrans, ignoreReservedCharacters);
+    for (int i = from; i < to; i++) {
+      try {
+        JsonFlattener jf = newJsonFlattener(inputs.get(i));
+        jf.shareKeys(keys);
+        results[i] = new BatchResult<>(i, flattening.apply(jf), null);
+      } catch (RuntimeException e) {
+        results[i] = new BatchResult<>(i, null, e);
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "JsonFlattenerEngine{flattenMode=" + flattenMode + ", policy=" + policy + ", separator="
+        + separator + ", leftBracket=" + leftBracket + ", rightBracket=" + rightBracket
+        + ", printMode=" + printMode + ", indent=\"" + indent + "\", keyTransformer=" + keyTrans
+        + ", ignoreReservedCharacters=" + ignoreReservedCharacters + ", forkJoinPool="
+        + forkJoinPool + ", parallelThreshold=" + parallelThreshold + ", includedKeys="
+        + includedKeys + ", excludedKeys=" + excludedKeys + ", jsonCore=" + jsonCore + "}";
+  }
+
+}
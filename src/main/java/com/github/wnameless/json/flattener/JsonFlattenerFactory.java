@@ -116,6 +116,19 @@ public final class JsonFlattenerFactory {
     return jf;
   }
 
+  /**
+   * Compiles the configuration of this {@link JsonFlattenerFactory} into an immutable and
+   * thread-safe {@link JsonFlattenerEngine}. The configurer runs only once, so no configuration
+   * cost is paid by the flatten calls of the returned engine.
+   * 
+   * @return a {@link JsonFlattenerEngine}
+   */
+  public JsonFlattenerEngine compile() {
+    JsonFlattener jf = new JsonFlattener("{}");
+    configurer.accept(jf);
+    return jf.compile(jsonCore);
+  }
+
   @Override
   public int hashCode() {
     int result = 27;
@@ -0,0 +1,236 @@
+/*
+ *
+ * Copyright 2026 Wei-Ming Wu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package com.github.wnameless.json.flattener;
+
+import java.io.IOException;
+import java.io.Writer;
+import org.apache.commons.text.translate.CharSequenceTranslator;
+
+/**
+ *
+ * {@link JsonStringEscaper} is the {@link CharSequenceTranslator} of every
+ * {@link StringEscapePolicy}. It produces the same output as the lookup based translators it
+ * replaces, but it looks up every character in a table and copies the runs of characters which
+ * need no escaping as they are. A String without any character to escape is returned or written
+ * unchanged.<br>
+ * <br>
+ * Use {@link #escape(CharSequenceTranslator, CharSequence, Writer)} to benefit from it while any
+ * other {@link CharSequenceTranslator} keeps working as before. Through the
+ * {@link CharSequenceTranslator} API, it escapes one character at a time like the lookup based
+ * translators, so it can be combined with other translators.
+ *
+ * @author Wei-Ming Wu
+ *
+ */
+final class JsonStringEscaper extends CharSequenceTranslator {
+
+  private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+  private final boolean[] asciiEscapes = new boolean[128];
+  private final boolean escapeSlash;
+  private final int unicodeAbove;
+
+  /**
+   * Creates a {@link JsonStringEscaper} which always escapes quotation marks, backslashes and the
+   * control characters which have a short escape sequence.
+   *
+   * @param escapeSlash true if slashes are escaped
+   * @param unicodeAbove every character below 32 or above this one is escaped as an Unicode escape
+   *        sequence, or -1 to leave them unescaped
+   */
+  JsonStringEscaper(boolean escapeSlash, int unicodeAbove) {
+    this.escapeSlash = escapeSlash;
+    this.unicodeAbove = unicodeAbove;
+
+    asciiEscapes['"'] = true;
+    asciiEscapes['\\'] = true;
+    asciiEscapes['/'] = escapeSlash;
+    asciiEscapes['\b'] = true;
+    asciiEscapes['\n'] = true;
+    asciiEscapes['\t'] = true;
+    asciiEscapes['\f'] = true;
+    asciiEscapes['\r'] = true;
+    if (unicodeAbove >= 0) {
+      for (int c = 0; c < asciiEscapes.length; c++) {
+        if (c < 32 || c > unicodeAbove) asciiEscapes[c] = true;
+      }
+    }
+  }
+
+  /**
+   * Writes the given input into the given {@link Writer} escaped by the given
+   * {@link CharSequenceTranslator}.
+   *
+   * @param translator any {@link CharSequenceTranslator}
+   * @param input the text to escape
+   * @param out the {@link Writer} of the escaped text
+   * @throws IOException if the out cannot be written
+   */
+  static void escape(CharSequenceTranslator translator, CharSequence input, Writer out)
+      throws IOException {
+    if (translator instanceof JsonStringEscaper) {
+      ((JsonStringEscaper) translator).escape(input, out);
+    } else {
+      translator.translate(input, out);
+    }
+  }
+
+  /**
+   * Returns the given input escaped by the given {@link CharSequenceTranslator}.
+   *
+   * @param translator any {@link CharSequenceTranslator}
+   * @param input the text to escape
+   * @return the escaped text
+   */
+  static String escape(CharSequenceTranslator translator, CharSequence input) {
+    if (translator instanceof JsonStringEscaper) {
+      return ((JsonStringEscaper) translator).escape(input);
+    } else {
+      return translator.translate(input);
+    }
+  }
+
+  /**
+   * Writes the given input into the given {@link Writer} with all its special characters escaped.
+   *
+   * @param input the text to escape
+   * @param out the {@link Writer} of the escaped text
+   * @throws IOException if the out cannot be written
+   */
+  void escape(CharSequence input, Writer out) throws IOException {
+    int length = input.length();
+    int run = 0;
+    for (int i = 0; i < length; i++) {
+      char c = input.charAt(i);
+      if (needsEscape(c)) {
+        if (run < i) writeRun(input, run, i, out);
+        writeEscape(c, out);
+        run = i + 1;
+      }
+    }
+    if (run < length) writeRun(input, run, length, out);
+  }
+
+  /**
+   * Returns the given input with all its special characters escaped.
+   *
+   * @param input the text to escape
+   * @return the escaped text, or the input itself as a String if nothing needs to be escaped
+   */
+  String escape(CharSequence input) {
+    int length = input.length();
+    int first = 0;
+    while (first < length && !needsEscape(input.charAt(first))) first++;
+    if (first == length) return input.toString();
+
+    StringBuilder sb = new StringBuilder(length + 16);
+    sb.append(input, 0, first);
+    int run = first;
+    for (int i = first; i < length; i++) {
+      char c = input.charAt(i);
+      if (needsEscape(c)) {
+        if (run < i) sb.append(input, run, i);
+        appendEscape(c, sb);
+        run = i + 1;
+      }
+    }
+    if (run < length) sb.append(input, run, length);
+    return sb.toString();
+  }
+
+  /**
+   * Escapes only the character at the given index, so this translator can still be combined with
+   * other {@link CharSequenceTranslator}s. A surrogate pair is escaped as a whole since it is a
+   * single code point.
+   *
+   * @return the number of code points consumed, or 0 if the character needs no escaping
+   */
+  @Override
+  public int translate(CharSequence input, int index, Writer out) throws IOException {
+    char c = input.charAt(index);
+    if (!needsEscape(c)) return 0;
+
+    writeEscape(c, out);
+    if (Character.isHighSurrogate(c) && index + 1 < input.length()
+        && Character.isLowSurrogate(input.charAt(index + 1))) {
+      writeEscape(input.charAt(index + 1), out);
+    }
+    return 1;
+  }
+
+  private boolean needsEscape(char c) {
+    return c < 128 ? asciiEscapes[c] : unicodeAbove >= 0;
+  }
+
+  private static void writeRun(CharSequence input, int start, int end, Writer out)
+      throws IOException {
+    if (input instanceof String) {
+      out.write((String) input, start, end - start);
+    } else {
+      out.append(input, start, end);
+    }
+  }
+
+  private void writeEscape(char c, Writer out) throws IOException {
+    char shortEscape = shortEscape(c);
+    if (shortEscape != 0) {
+      out.write('\\');
+      out.write(shortEscape);
+    } else {
+      out.write('\\');
+      out.write('u');
+      out.write(HEX[(c >> 12) & 0xF]);
+      out.write(HEX[(c >> 8) & 0xF]);
+      out.write(HEX[(c >> 4) & 0xF]);
+      out.write(HEX[c & 0xF]);
+    }
+  }
+
+  private void appendEscape(char c, StringBuilder sb) {
+    char shortEscape = shortEscape(c);
+    if (shortEscape != 0) {
+      sb.append('\\').append(shortEscape);
+    } else {
+      sb.append('\\').append('u').append(HEX[(c >> 12) & 0xF]).append(HEX[(c >> 8) & 0xF])
+          .append(HEX[(c >> 4) & 0xF]).append(HEX[c & 0xF]);
+    }
+  }
+
+  // Surrogate pairs are escaped as 2 Unicode escape sequences, so every char is escaped on its own
+  private char shortEscape(char c) {
+    switch (c) {
+      case '"':
+        return '"';
+      case '\\':
+        return '\\';
+      case '/':
+        return escapeSlash ? '/' : 0;
+      case '\b':
+        return 'b';
+      case '\n':
+        return 'n';
+      case '\t':
+        return 't';
+      case '\f':
+        return 'f';
+      case '\r':
+        return 'r';
+      default:
+        return 0;
+    }
+  }
+
+}
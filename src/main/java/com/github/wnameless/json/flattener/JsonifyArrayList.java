@@ -15,11 +15,14 @@
  */
 package com.github.wnameless.json.flattener;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Map;
 import org.apache.commons.text.translate.CharSequenceTranslator;
-import com.github.wnameless.json.base.JsonPrinter;
 
 /**
  * {@link JsonifyArrayList} is simply a ArrayList but with an override jsonify toString method.
@@ -46,36 +49,60 @@ public class JsonifyArrayList<E> extends ArrayList<E> {
   }
 
   public String toString(PrintMode printMode) {
-    switch (printMode) {
-      case PRETTY:
-        return JsonPrinter.prettyPrint(toString());
-      default:
-        return toString();
+    return toString(printMode, PrettyJsonWriter.DEFAULT_INDENT);
+  }
+
+  /**
+   * Returns the JSON string of this list in the given {@link PrintMode}.
+   * 
+   * @param printMode a {@link PrintMode}
+   * @param indent the indent of {@link PrintMode#PRETTY}, which consists of spaces and tabs only
+   * @return a JSON string
+   */
+  public String toString(PrintMode printMode, String indent) {
+    StringWriter sw = new StringWriter();
+    try {
+      switch (printMode) {
+        case PRETTY:
+          writeTo(new PrettyJsonWriter(sw, indent));
+          break;
+        default:
+          writeTo(sw);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
     }
+    return sw.toString();
   }
 
   @Override
   public String toString() {
-    StringBuilder sb = new StringBuilder();
-    sb.append('[');
+    return toString(PrintMode.MINIMAL);
+  }
+
+  void writeTo(Writer out) throws IOException {
+    out.write('[');
+    boolean first = true;
     for (E e : this) {
-      if (e instanceof String) {
-        sb.append('"');
-        sb.append(translator.translate((String) e));
-        sb.append('"');
-      } else if (e instanceof Collection) {
-        sb.append(new JsonifyArrayList<>((Collection<?>) e));
-      } else if (e instanceof Map) {
-        sb.append(new JsonifyLinkedHashMap<>((Map<?, ?>) e));
-      } else {
-        sb.append(e);
-      }
-      sb.append(',');
+      if (!first) out.write(',');
+      first = false;
+      writeValue(e, out);
     }
-    if (sb.length() > 1) sb.setLength(sb.length() - 1);
-    sb.append(']');
+    out.write(']');
+  }
 
-    return sb.toString();
+  private void writeValue(Object value, Writer out) throws IOException {
+    if (value instanceof String) {
+      out.write('"');
+      JsonStringEscaper.escape(translator, (String) value, out);
+      out.write('"');
+    } else if (value instanceof Collection) {
+      new JsonifyArrayList<>((Collection<?>) value).writeTo(out);
+    } else if (value instanceof Map) {
+      new JsonifyLinkedHashMap<>((Map<?, ?>) value).writeTo(out);
+    } else {
+      out.write(String.valueOf(value));
+    }
   }
 
 }
@@ -15,11 +15,14 @@
  */
 package com.github.wnameless.json.flattener;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import org.apache.commons.text.translate.CharSequenceTranslator;
-import com.github.wnameless.json.base.JsonPrinter;
 
 /**
  * {@link JsonifyLinkedHashMap} is simple a LinkedHashMap but with an override jsonify toString
@@ -48,40 +51,64 @@ public class JsonifyLinkedHashMap<K, V> extends LinkedHashMap<K, V> {
   }
 
   public String toString(PrintMode printMode) {
-    switch (printMode) {
-      case PRETTY:
-        return JsonPrinter.prettyPrint(toString());
-      default:
-        return toString();
+    return toString(printMode, PrettyJsonWriter.DEFAULT_INDENT);
+  }
+
+  /**
+   * Returns the JSON string of this map in the given {@link PrintMode}.
+   * 
+   * @param printMode a {@link PrintMode}
+   * @param indent the indent of {@link PrintMode#PRETTY}, which consists of spaces and tabs only
+   * @return a JSON string
+   */
+  public String toString(PrintMode printMode, String indent) {
+    StringWriter sw = new StringWriter();
+    try {
+      switch (printMode) {
+        case PRETTY:
+          writeTo(new PrettyJsonWriter(sw, indent));
+          break;
+        default:
+          writeTo(sw);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
     }
+    return sw.toString();
   }
 
   @Override
   public String toString() {
-    StringBuilder sb = new StringBuilder();
-    sb.append('{');
+    return toString(PrintMode.MINIMAL);
+  }
+
+  void writeTo(Writer out) throws IOException {
+    out.write('{');
+    boolean first = true;
     for (Map.Entry<K, V> mem : entrySet()) {
-      sb.append('"');
-      sb.append(translator.translate((String) mem.getKey()));
-      sb.append('"');
-      sb.append(':');
-      if (mem.getValue() instanceof String) {
-        sb.append('"');
-        sb.append(translator.translate((String) mem.getValue()));
-        sb.append('"');
-      } else if (mem.getValue() instanceof Collection) {
-        sb.append(new JsonifyArrayList<>((Collection<?>) mem.getValue()));
-      } else if (mem.getValue() instanceof Map) {
-        sb.append(new JsonifyLinkedHashMap<>((Map<?, ?>) mem.getValue()));
-      } else {
-        sb.append(mem.getValue());
-      }
-      sb.append(',');
+      if (!first) out.write(',');
+      first = false;
+      out.write('"');
+      JsonStringEscaper.escape(translator, (String) mem.getKey(), out);
+      out.write('"');
+      out.write(':');
+      writeValue(mem.getValue(), out);
     }
-    if (sb.length() > 1) sb.setLength(sb.length() - 1);
-    sb.append('}');
+    out.write('}');
+  }
 
-    return sb.toString();
+  private void writeValue(Object value, Writer out) throws IOException {
+    if (value instanceof String) {
+      out.write('"');
+      JsonStringEscaper.escape(translator, (String) value, out);
+      out.write('"');
+    } else if (value instanceof Collection) {
+      new JsonifyArrayList<>((Collection<?>) value).writeTo(out);
+    } else if (value instanceof Map) {
+      new JsonifyLinkedHashMap<>((Map<?, ?>) value).writeTo(out);
+    } else {
+      out.write(String.valueOf(value));
+    }
   }
 
 }
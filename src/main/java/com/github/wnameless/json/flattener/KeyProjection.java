@@ -0,0 +1,300 @@
+/*
+ *
+ * Copyright 2026 Wei-Ming Wu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package com.github.wnameless.json.flattener;
+
+import static com.github.wnameless.json.flattener.FlattenMode.MONGODB;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ *
+ * {@link KeyProjection} decides which flattened keys are kept by matching their key parts
+ * against included and excluded key patterns. A pattern is written like a flattened key, where a
+ * key part of {@code *} matches any object key, a key part with {@code *} in it matches object keys
+ * like a glob and an index of {@code [*]} matches any array index. In {@link FlattenMode#MONGODB},
+ * {@code *} matches any key or index and a numeric key part matches either the index or the object
+ * key.<br>
+ * <br>
+ * A pattern matches a key if it matches the whole key or its leading key parts, so a pattern keeps
+ * or drops the whole subtree under it. A key is kept if it matches any included pattern, or if
+ * there is no included pattern at all, and it matches no excluded pattern.<br>
+ * <br>
+ * A {@link KeyProjection} is immutable, while each traversal matches its keys with its own
+ * {@link Cursor}.
+ *
+ * @author Wei-Ming Wu
+ *
+ */
+final class KeyProjection {
+
+  private enum Kind {
+    KEY, GLOB, ANY_KEY, INDEX, ANY_INDEX, INDEX_OR_KEY, ANY
+  }
+
+  private static final class Segment {
+
+    private final Kind kind;
+    private final String key;
+    private final int index;
+
+    private Segment(Kind kind, String key, int index) {
+      this.kind = kind;
+      this.key = key;
+      this.index = index;
+    }
+
+    private boolean matches(boolean isIndex, String key, int index) {
+      switch (kind) {
+        case KEY:
+          return !isIndex && this.key.equals(key);
+        case GLOB:
+          return !isIndex && globMatches(this.key, key);
+        case ANY_KEY:
+          return !isIndex;
+        case INDEX:
+          return isIndex && this.index == index;
+        case ANY_INDEX:
+          return isIndex;
+        case INDEX_OR_KEY:
+          return isIndex ? this.index == index : this.key.equals(key);
+        default:
+          return true;
+      }
+    }
+
+  }
+
+  private final Segment[][] patterns;
+  private final int includeCount;
+
+  /**
+   * Creates a {@link KeyProjection} whose patterns are written with the given key grammar.
+   *
+   * @param flattenMode a {@link FlattenMode}
+   * @param separator the separator within a key
+   * @param leftBracket the left bracket within a key
+   * @param rightBracket the right bracket within a key
+   * @param includes the included key patterns
+   * @param excludes the excluded key patterns
+   * @throws IllegalArgumentException if any pattern is malformed
+   */
+  KeyProjection(FlattenMode flattenMode, char separator, char leftBracket, char rightBracket,
+      List<String> includes, List<String> excludes) {
+    includeCount = includes.size();
+    patterns = new Segment[includes.size() + excludes.size()][];
+    int i = 0;
+    for (String pattern : includes) {
+      patterns[i++] = parse(pattern, flattenMode, separator, leftBracket, rightBracket);
+    }
+    for (String pattern : excludes) {
+      patterns[i++] = parse(pattern, flattenMode, separator, leftBracket, rightBracket);
+    }
+  }
+
+  private static Segment[] parse(String pattern, FlattenMode flattenMode, char separator,
+      char leftBracket, char rightBracket) {
+    List<Segment> segments = new ArrayList<>();
+    int i = 0;
+    while (i < pattern.length()) {
+      char c = pattern.charAt(i);
+      if (c == leftBracket) {
+        int end;
+        if (i + 1 < pattern.length() && pattern.charAt(i + 1) == '"') {
+          end = pattern.indexOf("\"" + rightBracket, i + 2);
+          if (end < 0) throw illegalPattern(pattern);
+          segments.add(new Segment(Kind.KEY, pattern.substring(i + 2, end), -1));
+          end++;
+        } else {
+          end = pattern.indexOf(rightBracket, i + 1);
+          if (end < 0) throw illegalPattern(pattern);
+          String index = pattern.substring(i + 1, end);
+          if (index.equals("*")) {
+            segments.add(new Segment(Kind.ANY_INDEX, null, -1));
+          } else if (isIndex(index)) {
+            segments.add(new Segment(Kind.INDEX, null, Integer.parseInt(index)));
+          } else {
+            throw illegalPattern(pattern);
+          }
+        }
+        i = end + 1;
+      } else {
+        if (c == separator) {
+          if (segments.isEmpty()) throw illegalPattern(pattern);
+          i++;
+        } else if (!segments.isEmpty()) {
+          throw illegalPattern(pattern);
+        }
+
+        int end = i;
+        while (end < pattern.length() && pattern.charAt(end) != separator
+            && pattern.charAt(end) != leftBracket && pattern.charAt(end) != rightBracket) {
+          end++;
+        }
+        String key = pattern.substring(i, end);
+        if (key.isEmpty()) throw illegalPattern(pattern);
+        segments.add(keySegment(key, flattenMode));
+        i = end;
+      }
+    }
+    if (segments.isEmpty()) throw illegalPattern(pattern);
+
+    return segments.toArray(new Segment[segments.size()]);
+  }
+
+  private static Segment keySegment(String key, FlattenMode flattenMode) {
+    if (flattenMode == MONGODB) {
+      if (key.equals("*")) return new Segment(Kind.ANY, null, -1);
+      if (isIndex(key)) return new Segment(Kind.INDEX_OR_KEY, key, Integer.parseInt(key));
+    }
+    if (key.equals("*")) return new Segment(Kind.ANY_KEY, null, -1);
+    if (key.indexOf('*') >= 0) return new Segment(Kind.GLOB, key, -1);
+    return new Segment(Kind.KEY, key, -1);
+  }
+
+  private static boolean isIndex(String str) {
+    if (str.isEmpty() || str.length() > 9) return false;
+    for (int i = 0; i < str.length(); i++) {
+      if (str.charAt(i) < '0' || str.charAt(i) > '9') return false;
+    }
+    return true;
+  }
+
+  private static IllegalArgumentException illegalPattern(String pattern) {
+    return new IllegalArgumentException("Illegal key pattern(" + pattern + ")");
+  }
+
+  // Matches * as any run of characters, including an empty one
+  private static boolean globMatches(String glob, String str) {
+    int g = 0, s = 0;
+    int star = -1, backtrack = 0;
+    while (s < str.length()) {
+      if (g < glob.length() && glob.charAt(g) == '*') {
+        star = g++;
+        backtrack = s;
+      } else if (g < glob.length() && glob.charAt(g) == str.charAt(s)) {
+        g++;
+        s++;
+      } else if (star >= 0) {
+        g = star + 1;
+        s = ++backtrack;
+      } else {
+        return false;
+      }
+    }
+    while (g < glob.length() && glob.charAt(g) == '*') g++;
+    return g == glob.length();
+  }
+
+  /**
+   * Creates a new {@link Cursor} for a single traversal.
+   *
+   * @return a {@link Cursor}
+   */
+  Cursor newCursor() {
+    return new Cursor();
+  }
+
+  /**
+   * {@link Cursor} keeps the patterns which still match the current key at every depth, so entering
+   * a key part only tests the patterns which matched its parent.
+   */
+  final class Cursor {
+
+    // The patterns whose leading key parts match the key of each depth
+    private int[][] alive = new int[16][];
+    private int[] counts = new int[16];
+    // Whether the key of each depth matches an included pattern as a whole
+    private boolean[] included = new boolean[16];
+
+    private Cursor() {
+      alive[0] = new int[patterns.length];
+      for (int i = 0; i < patterns.length; i++) {
+        alive[0][i] = i;
+      }
+      counts[0] = patterns.length;
+      included[0] = includeCount == 0;
+    }
+
+    /**
+     * Enters an object key below the key of the given depth.
+     *
+     * @param depth the number of key parts of the parent key
+     * @param key the object key
+     * @return false if nothing under the key is kept, so the subtree can be skipped
+     */
+    boolean enterKey(int depth, String key) {
+      return enter(depth, false, key, -1);
+    }
+
+    /**
+     * Enters an array index below the key of the given depth.
+     *
+     * @param depth the number of key parts of the parent key
+     * @param index the array index
+     * @return false if nothing under the index is kept, so the subtree can be skipped
+     */
+    boolean enterIndex(int depth, int index) {
+      return enter(depth, true, null, index);
+    }
+
+    private boolean enter(int depth, boolean isIndex, String key, int index) {
+      int next = depth + 1;
+      if (next == alive.length) {
+        alive = Arrays.copyOf(alive, next * 2);
+        counts = Arrays.copyOf(counts, next * 2);
+        included = Arrays.copyOf(included, next * 2);
+      }
+      if (alive[next] == null) alive[next] = new int[patterns.length];
+
+      int[] from = alive[depth];
+      int[] to = alive[next];
+      boolean keep = included[depth];
+      int count = 0;
+      int includes = 0;
+      for (int i = 0; i < counts[depth]; i++) {
+        int p = from[i];
+        Segment[] pattern = patterns[p];
+        if (!pattern[depth].matches(isIndex, key, index)) continue;
+
+        if (pattern.length == next) {
+          if (p >= includeCount) return false;
+          keep = true;
+        } else {
+          to[count++] = p;
+          if (p < includeCount) includes++;
+        }
+      }
+      if (!keep && includes == 0) return false;
+
+      counts[next] = count;
+      included[next] = keep;
+      return true;
+    }
+
+    /**
+     * Checks if the key of the given depth is kept, once all of its key parts have been entered.
+     *
+     * @param depth the number of key parts of the key
+     * @return true if the key is kept, false otherwise
+     */
+    boolean includes(int depth) {
+      return included[depth];
+    }
+
+  }
+
+}
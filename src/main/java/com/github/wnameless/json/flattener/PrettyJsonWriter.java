@@ -0,0 +1,235 @@
+/*
+ *
+ * Copyright 2026 Wei-Ming Wu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package com.github.wnameless.json.flattener;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+import java.io.IOException;
+import java.io.Writer;
+import com.github.wnameless.json.base.JsonPrinter;
+
+/**
+ *
+ * {@link PrettyJsonWriter} is a {@link Writer} which indents the minimal JSON written into it on
+ * the fly and passes the result to the underlying {@link Writer}.<br>
+ * <br>
+ * The output is identical to {@link JsonPrinter#prettyPrint(String)} of the same JSON, but neither
+ * the minimal JSON nor the pretty one has to be built as a String in between.
+ *
+ * @author Wei-Ming Wu
+ *
+ */
+public final class PrettyJsonWriter extends Writer {
+
+  /**
+   * The indent of {@link JsonPrinter#prettyPrint(String)}, which is 2 spaces.
+   */
+  public static final String DEFAULT_INDENT = "  ";
+
+  private final Writer out;
+  private final String indent;
+
+  private char prevChar = '\0';
+  private int backslashes = 0;
+  private boolean inQuote = false;
+  private boolean inArray = false;
+  private int level = 0;
+
+  /**
+   * Creates a {@link PrettyJsonWriter} with the {@link #DEFAULT_INDENT}.
+   *
+   * @param out the {@link Writer} of the pretty JSON
+   */
+  public PrettyJsonWriter(Writer out) {
+    this(out, DEFAULT_INDENT);
+  }
+
+  /**
+   * Creates a {@link PrettyJsonWriter} with the given indent.
+   *
+   * @param out the {@link Writer} of the pretty JSON
+   * @param indent an indent which consists of spaces and tabs only
+   */
+  public PrettyJsonWriter(Writer out, String indent) {
+    if (out == null) throw new NullPointerException();
+    validateIndent(indent);
+    this.out = out;
+    this.indent = indent;
+  }
+
+  /**
+   * Checks if the given indent can be used to pretty print JSON.
+   *
+   * @param indent any String
+   * @throws NullPointerException if the indent is null
+   * @throws IllegalArgumentException if the indent contains anything but spaces and tabs
+   */
+  public static void validateIndent(String indent) {
+    if (indent == null) throw new NullPointerException();
+    for (int i = 0; i < indent.length(); i++) {
+      char c = indent.charAt(i);
+      isTrue(c == ' ' || c == '\t', "Indent must consist of spaces and tabs only");
+    }
+  }
+
+  @Override
+  public void write(int c) throws IOException {
+    process((char) c);
+  }
+
+  @Override
+  public void write(char[] cbuf, int off, int len) throws IOException {
+    int run = off;
+    for (int i = off; i < off + len; i++) {
+      char c = cbuf[i];
+      if (isVerbatim(c)) {
+        track(c);
+      } else {
+        if (run < i) out.write(cbuf, run, i - run);
+        process(c);
+        run = i + 1;
+      }
+    }
+    if (run < off + len) out.write(cbuf, run, off + len - run);
+  }
+
+  @Override
+  public void write(String str, int off, int len) throws IOException {
+    int run = off;
+    for (int i = off; i < off + len; i++) {
+      char c = str.charAt(i);
+      if (isVerbatim(c)) {
+        track(c);
+      } else {
+        if (run < i) out.write(str, run, i - run);
+        process(c);
+        run = i + 1;
+      }
+    }
+    if (run < off + len) out.write(str, run, off + len - run);
+  }
+
+  // Characters which are copied as they are without changing any state but the escaping one
+  private boolean isVerbatim(char c) {
+    if (inQuote) return c != '"';
+
+    switch (c) {
+      case '"':
+      case '{':
+      case '}':
+      case '[':
+      case ']':
+      case ',':
+      case ':':
+        return false;
+      default:
+        return !isWhitespace(c);
+    }
+  }
+
+  // Same steps as JsonPrinter#prettyPrint, including its quirks outside of quotes
+  @SuppressWarnings("fallthrough") // An escaped quote falls through as JsonPrinter does
+  private void process(char c) throws IOException {
+    switch (c) {
+      case '"':
+        if (prevChar != '\\' || backslashes % 2 == 0) {
+          inQuote = !inQuote;
+          out.write(c);
+          break;
+        }
+        // fall through, an escaped quote is handled as an opening brace like JsonPrinter does
+      case '{':
+        out.write(c);
+        if (!inQuote) {
+          level++;
+          appendNewLine();
+        }
+        break;
+      case '}':
+        if (!inQuote) {
+          level--;
+          appendNewLine();
+        }
+        out.write(c);
+        break;
+      case '[':
+        out.write(c);
+        if (!inQuote) {
+          inArray = true;
+          out.write(' ');
+        }
+        break;
+      case ']':
+        if (!inQuote) {
+          inArray = false;
+          out.write(' ');
+        }
+        out.write(c);
+        break;
+      case ',':
+        out.write(c);
+        if (!inQuote) {
+          if (inArray) {
+            out.write(' ');
+          } else {
+            appendNewLine();
+          }
+        }
+        break;
+      case ':':
+        if (inQuote) {
+          out.write(c);
+        } else {
+          out.write(" : ");
+        }
+        break;
+      default:
+        if (inQuote || !isWhitespace(c)) out.write(c);
+    }
+    track(c);
+  }
+
+  private void track(char c) {
+    if (c == '\\') {
+      backslashes++;
+    } else {
+      backslashes = 0;
+    }
+    prevChar = c;
+  }
+
+  private void appendNewLine() throws IOException {
+    out.write('\n');
+    for (int i = 0; i < level; i++) {
+      out.write(indent);
+    }
+  }
+
+  // Same as \s in java.util.regex
+  private static boolean isWhitespace(char c) {
+    return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+  }
+
+  @Override
+  public void flush() throws IOException {
+    out.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    out.close();
+  }
+
+}
@@ -0,0 +1,681 @@
+/*
+ *
+ * Copyright 2026 Wei-Ming Wu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package com.github.wnameless.json.flattener;
+
+import static com.github.wnameless.json.flattener.JsonFlattener.ROOT;
+import static java.util.Collections.EMPTY_MAP;
+import static org.apache.commons.lang3.Validate.isTrue;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import org.apache.commons.text.translate.CharSequenceTranslator;
+import com.github.wnameless.json.base.JsonValueUtils;
+import tools.jackson.core.JsonParser;
+import tools.jackson.core.JsonToken;
+import tools.jackson.core.ObjectReadContext;
+import tools.jackson.core.exc.StreamReadException;
+import tools.jackson.core.json.JsonFactory;
+
+/**
+ *
+ * {@link StreamingJsonFlattener} flattens JSON straight from the token stream of a Jackson
+ * {@link JsonParser} without building a JSON tree first. Every flattened key/value pair is emitted
+ * as soon as its tokens have been read, so the memory needed to flatten a document into a
+ * {@link Writer} is bounded by the nesting depth of the document instead of its size.<br>
+ * <br>
+ * The flattened result is identical to the one produced by {@link JsonFlattener} with the same
+ * {@link FlattenMode}, {@link StringEscapePolicy}, separator, brackets and {@link KeyTransformer}.
+ * Since {@link FlattenMode#KEEP_ARRAYS} and {@link FlattenMode#KEEP_PRIMITIVE_ARRAYS} keep arrays
+ * as values, the arrays they keep are still held in memory.<br>
+ * <br>
+ * Two members may be flattened into the same key if {@link #ignoreReservedCharacters()} is
+ * enabled, a {@link KeyTransformer} is set or the {@link FlattenMode#MONGODB} is used, since it
+ * doesn't wrap empty keys. Without a flattened Map to merge them, the flattened JSON written by
+ * this class then contains the duplicate key once per member, while {@link JsonFlattener#flatten()}
+ * and {@link #flattenAsMap(String)} keep only its last value.<br>
+ * <br>
+ * Unlike {@link JsonFlattener}, a {@link StreamingJsonFlattener} holds only its configuration, so
+ * one configured instance can flatten any number of JSON inputs.
+ *
+ * @author Wei-Ming Wu
+ *
+ */
+public final class StreamingJsonFlattener {
+
+  private static final JsonFactory jsonFactory = new JsonFactory();
+
+  private FlattenMode flattenMode = FlattenMode.NORMAL;
+  private CharSequenceTranslatorFactory policy = StringEscapePolicy.DEFAULT;
+  private Character separator = '.';
+  private Character leftBracket = '[';
+  private Character rightBracket = ']';
+  private KeyTransformer keyTrans = null;
+  private boolean ignoreReservedCharacters = false;
+  private List<String> includedKeys = Collections.emptyList();
+  private List<String> excludedKeys = Collections.emptyList();
+  private KeyProjection projection = null;
+
+  /**
+   * Creates a {@link StreamingJsonFlattener} with the default configuration.
+   */
+  public StreamingJsonFlattener() {}
+
+  /**
+   * A fluent setter to setup a mode of the {@link StreamingJsonFlattener}.
+   *
+   * @param flattenMode a {@link FlattenMode}
+   * @return this {@link StreamingJsonFlattener}
+   */
+  public StreamingJsonFlattener withFlattenMode(FlattenMode flattenMode) {
+    if (flattenMode == null) throw new NullPointerException();
+    this.flattenMode = flattenMode;
+    projection = newKeyProjection();
+    return this;
+  }
+
+  /**
+   * A fluent setter to setup the JSON string escape policy.
+   *
+   * @param policy any {@link CharSequenceTranslatorFactory} or a {@link StringEscapePolicy}
+   * @return this {@link StreamingJsonFlattener}
+   */
+  public StreamingJsonFlattener withStringEscapePolicy(CharSequenceTranslatorFactory policy) {
+    if (policy == null) throw new NullPointerException();
+    this.policy = policy;
+    return this;
+  }
+
+  /**
+   * A fluent setter to setup the separator within a key in the flattened JSON. The default
+   * separator is a dot(.).
+   *
+   * @param separator any character
+   * @return this {@link StreamingJsonFlattener}
+   */
+  public StreamingJsonFlattener withSeparator(char separator) {
+    String separatorStr = String.valueOf(separator);
+    isTrue(!separatorStr.matches("[\"\\s]"), "Separator contains illegal character(%s)",
+        separatorStr);
+    isTrue(!leftBracket.equals(separator) && !rightBracket.equals(separator),
+        "Separator(%s) is already used in brackets", separatorStr);
+
+    this.separator = separator;
+    projection = newKeyProjection();
+    return this;
+  }
+
+  private String illegalBracketsRegex() {
+    return "[\"\\s" + Pattern.quote(this.separator.toString()) + "]";
+  }
+
+  /**
+   * A fluent setter to setup the left and right brackets within a key in the flattened JSON. The
+   * default left and right brackets are left square bracket([) and right square bracket(]).
+   *
+   * @param leftBracket any character
+   * @param rightBracket any character
+   * @return this {@link StreamingJsonFlattener}
+   */
+  public StreamingJsonFlattener withLeftAndRightBrackets(char leftBracket, char rightBracket) {
+    isTrue(leftBracket != rightBracket, "Both brackets cannot be the same");
+    String leftBracketStr = String.valueOf(leftBracket);
+    String rightBracketStr = String.valueOf(rightBracket);
+    isTrue(!leftBracketStr.matches(illegalBracketsRegex()),
+        "Left bracket contains illegal character(%s)", leftBracketStr);
+    isTrue(!rightBracketStr.matches(illegalBracketsRegex()),
+        "Right bracket contains illegal character(%s)", rightBracketStr);
+
+    this.leftBracket = leftBracket;
+    this.rightBracket = rightBracket;
+    projection = newKeyProjection();
+    return this;
+  }
+
+  /**
+   * A fluent setter to setup a {@link KeyTransformer} of the {@link StreamingJsonFlattener}.
+   *
+   * @param keyTrans a {@link KeyTransformer}
+   * @return this {@link StreamingJsonFlattener}
+   */
+  public StreamingJsonFlattener withKeyTransformer(KeyTransformer keyTrans) {
+    this.keyTrans = keyTrans;
+    return this;
+  }
+
+  /**
+   * A fluent setter to setup the included key patterns of the {@link StreamingJsonFlattener}. The
+   * tokens of the objects and arrays which cannot contain any included key are skipped by the
+   * parser without being flattened.
+   *
+   * @param patterns the included key patterns, none to include all keys
+   * @return this {@link StreamingJsonFlattener}
+   * @throws IllegalArgumentException if any pattern is malformed
+   * @see JsonFlattener#withIncludedKeys(String...)
+   */
+  public StreamingJsonFlattener withIncludedKeys(String... patterns) {
+    List<String> keys = Collections.unmodifiableList(new ArrayList<>(Arrays.asList(patterns)));
+    if (keys.contains(null)) throw new NullPointerException();
+    List<String> oldKeys = includedKeys;
+    includedKeys = keys;
+    try {
+      projection = newKeyProjection();
+    } catch (IllegalArgumentException e) {
+      includedKeys = oldKeys;
+      throw e;
+    }
+    return this;
+  }
+
+  /**
+   * A fluent setter to setup the excluded key patterns of the {@link StreamingJsonFlattener}. The
+   * tokens of the excluded objects and arrays are skipped by the parser without being flattened.
+   *
+   * @param patterns the excluded key patterns, none to exclude nothing
+   * @return this {@link StreamingJsonFlattener}
+   * @throws IllegalArgumentException if any pattern is malformed
+   * @see JsonFlattener#withExcludedKeys(String...)
+   */
+  public StreamingJsonFlattener withExcludedKeys(String... patterns) {
+    List<String> keys = Collections.unmodifiableList(new ArrayList<>(Arrays.asList(patterns)));
+    if (keys.contains(null)) throw new NullPointerException();
+    List<String> oldKeys = excludedKeys;
+    excludedKeys = keys;
+    try {
+      projection = newKeyProjection();
+    } catch (IllegalArgumentException e) {
+      excludedKeys = oldKeys;
+      throw e;
+    }
+    return this;
+  }
+
+  private KeyProjection newKeyProjection() {
+    if (includedKeys.isEmpty() && excludedKeys.isEmpty()) return null;
+    return new KeyProjection(flattenMode, separator, leftBracket, rightBracket, includedKeys,
+        excludedKeys);
+  }
+
+  /**
+   * After this option is enable, all reserved characters used in keys will stop to be checked and
+   * escaped.
+   *
+   * @return this {@link StreamingJsonFlattener}
+   * @see JsonFlattener#ignoreReservedCharacters()
+   */
+  public StreamingJsonFlattener ignoreReservedCharacters() {
+    ignoreReservedCharacters = true;
+    return this;
+  }
+
+  /**
+   * Returns a flattened JSON string. A duplicate flattened key is written once per member, see
+   * {@link StreamingJsonFlattener}.
+   *
+   * @param json the JSON string
+   * @return a flattened JSON string
+   */
+  public String flatten(String json) {
+    StringWriter sw = new StringWriter();
+    try (JsonParser parser = jsonFactory.createParser(ObjectReadContext.empty(), json)) {
+      flatten(parser, sw);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return sw.toString();
+  }
+
+  /**
+   * Writes the flattened JSON of the given JSON reader into the given writer. Flattened key/value
+   * pairs are written as soon as they are read, the writer is neither flushed nor closed. A
+   * duplicate flattened key is written once per member, see {@link StreamingJsonFlattener}.
+   *
+   * @param jsonReader a JSON reader
+   * @param writer the {@link Writer} of the flattened JSON
+   * @throws IOException if the jsonReader cannot be read or the writer cannot be written
+   */
+  public void flatten(Reader jsonReader, Writer writer) throws IOException {
+    try (JsonParser parser = jsonFactory.createParser(ObjectReadContext.empty(), jsonReader)) {
+      flatten(parser, writer);
+    }
+  }
+
+  /**
+   * Writes the flattened JSON of the given JSON input stream into the given writer. The encoding of
+   * the input stream is auto-detected. Flattened key/value pairs are written as soon as they are
+   * read, the writer is neither flushed nor closed. A duplicate flattened key is written once per
+   * member, see {@link StreamingJsonFlattener}.
+   *
+   * @param jsonStream a JSON input stream
+   * @param writer the {@link Writer} of the flattened JSON
+   * @throws IOException if the jsonStream cannot be read or the writer cannot be written
+   */
+  public void flatten(InputStream jsonStream, Writer writer) throws IOException {
+    try (JsonParser parser = jsonFactory.createParser(ObjectReadContext.empty(), jsonStream)) {
+      flatten(parser, writer);
+    }
+  }
+
+  /**
+   * Returns a flattened JSON as Map.
+   *
+   * @param json the JSON string
+   * @return a flattened JSON as Map
+   */
+  public Map<String, Object> flattenAsMap(String json) {
+    try (JsonParser parser = jsonFactory.createParser(ObjectReadContext.empty(), json)) {
+      return flattenAsMap(parser);
+    }
+  }
+
+  /**
+   * Returns a flattened JSON as Map.
+   *
+   * @param jsonReader a JSON reader
+   * @return a flattened JSON as Map
+   * @throws IOException if the jsonReader cannot be read
+   */
+  public Map<String, Object> flattenAsMap(Reader jsonReader) throws IOException {
+    try (JsonParser parser = jsonFactory.createParser(ObjectReadContext.empty(), jsonReader)) {
+      return flattenAsMap(parser);
+    }
+  }
+
+  /**
+   * Passes every flattened key/value pair of the given JSON string to the given
+   * {@link FlattenedEntryConsumer} as soon as it is read.
+   *
+   * @param json the JSON string
+   * @param consumer a {@link FlattenedEntryConsumer}
+   */
+  public void flattenTo(String json, FlattenedEntryConsumer consumer) {
+    if (consumer == null) throw new NullPointerException();
+    try (JsonParser parser = jsonFactory.createParser(ObjectReadContext.empty(), json)) {
+      flattenTo(parser, consumer);
+    }
+  }
+
+  /**
+   * Passes every flattened key/value pair of the given JSON reader to the given
+   * {@link FlattenedEntryConsumer} as soon as it is read.
+   *
+   * @param jsonReader a JSON reader
+   * @param consumer a {@link FlattenedEntryConsumer}
+   * @throws IOException if the jsonReader cannot be read
+   */
+  public void flattenTo(Reader jsonReader, FlattenedEntryConsumer consumer) throws IOException {
+    if (consumer == null) throw new NullPointerException();
+    try (JsonParser parser = jsonFactory.createParser(ObjectReadContext.empty(), jsonReader)) {
+      flattenTo(parser, consumer);
+    }
+  }
+
+  /**
+   * Writes the flattened JSON of every record of the given newline-delimited JSON (NDJSON, aka JSON
+   * Lines) reader into the given writer, each followed by a line feed. Records are read one after
+   * another from a single token stream and flattened with the same key buffers, blank lines are
+   * skipped. The writer is neither flushed nor closed.
+   *
+   * @param jsonLinesReader a newline-delimited JSON reader
+   * @param writer the {@link Writer} of the flattened newline-delimited JSON
+   * @throws IOException if the jsonLinesReader cannot be read or the writer cannot be written
+   */
+  public void flattenLines(Reader jsonLinesReader, Writer writer) throws IOException {
+    if (writer == null) throw new NullPointerException();
+    try (JsonParser parser = jsonFactory.createParser(ObjectReadContext.empty(), jsonLinesReader)) {
+      flattenLines(parser, writer);
+    }
+  }
+
+  /**
+   * Writes the flattened JSON of every record of the given newline-delimited JSON (NDJSON, aka JSON
+   * Lines) input stream into the given writer, each followed by a line feed. The encoding of the
+   * input stream is auto-detected. The writer is neither flushed nor closed.
+   *
+   * @param jsonLinesStream a newline-delimited JSON input stream
+   * @param writer the {@link Writer} of the flattened newline-delimited JSON
+   * @throws IOException if the jsonLinesStream cannot be read or the writer cannot be written
+   * @see #flattenLines(Reader, Writer)
+   */
+  public void flattenLines(InputStream jsonLinesStream, Writer writer) throws IOException {
+    if (writer == null) throw new NullPointerException();
+    try (JsonParser parser = jsonFactory.createParser(ObjectReadContext.empty(), jsonLinesStream)) {
+      flattenLines(parser, writer);
+    }
+  }
+
+  /**
+   * Passes the flattened Map of every record of the given newline-delimited JSON (NDJSON, aka JSON
+   * Lines) reader to the given consumer, one record at a time. Blank lines are skipped.
+   *
+   * @param jsonLinesReader a newline-delimited JSON reader
+   * @param consumer a consumer of flattened JSON Maps
+   * @throws IOException if the jsonLinesReader cannot be read
+   */
+  public void flattenLinesAsMap(Reader jsonLinesReader, Consumer<Map<String, Object>> consumer)
+      throws IOException {
+    if (consumer == null) throw new NullPointerException();
+    try (JsonParser parser = jsonFactory.createParser(ObjectReadContext.empty(), jsonLinesReader)) {
+      flattenLinesAsMap(parser, consumer);
+    }
+  }
+
+  /**
+   * Passes the flattened Map of every record of the given newline-delimited JSON (NDJSON, aka JSON
+   * Lines) input stream to the given consumer, one record at a time. The encoding of the input
+   * stream is auto-detected.
+   *
+   * @param jsonLinesStream a newline-delimited JSON input stream
+   * @param consumer a consumer of flattened JSON Maps
+   * @throws IOException if the jsonLinesStream cannot be read
+   * @see #flattenLinesAsMap(Reader, Consumer)
+   */
+  public void flattenLinesAsMap(InputStream jsonLinesStream,
+      Consumer<Map<String, Object>> consumer) throws IOException {
+    if (consumer == null) throw new NullPointerException();
+    try (JsonParser parser = jsonFactory.createParser(ObjectReadContext.empty(), jsonLinesStream)) {
+      flattenLinesAsMap(parser, consumer);
+    }
+  }
+
+  private void flattenLines(JsonParser parser, Writer writer) throws IOException {
+    CharSequenceTranslator translator = policy.getCharSequenceTranslator();
+    Traversal traversal = new Traversal(parser, null, newCursor());
+    JsonToken token;
+    while ((token = parser.nextToken()) != null) {
+      FlattenedJsonWriter out =
+          new FlattenedJsonWriter(writer, translator, token == JsonToken.START_OBJECT);
+      try {
+        traversal.withSink(out).run(token);
+      } catch (UncheckedIOException e) {
+        throw e.getCause();
+      }
+      out.close();
+      writer.write('\n');
+    }
+  }
+
+  private void flattenLinesAsMap(JsonParser parser, Consumer<Map<String, Object>> consumer) {
+    Traversal traversal = new Traversal(parser, null, newCursor());
+    JsonToken token;
+    while ((token = parser.nextToken()) != null) {
+      JsonifyLinkedHashMap<String, Object> flattenedMap = newJsonifyLinkedHashMap();
+      traversal.withSink(flattenedMap::put).run(token);
+      consumer.accept(flattenedMap);
+    }
+  }
+
+  private void flattenTo(JsonParser parser, FlattenedEntryConsumer consumer) {
+    new Traversal(parser, consumer, newCursor()).run(firstToken(parser));
+    assureEndOfInput(parser);
+  }
+
+  private Map<String, Object> flattenAsMap(JsonParser parser) {
+    JsonifyLinkedHashMap<String, Object> flattenedMap = newJsonifyLinkedHashMap();
+    flattenTo(parser, flattenedMap::put);
+    return flattenedMap;
+  }
+
+  private void flatten(JsonParser parser, Writer writer) throws IOException {
+    JsonToken token = firstToken(parser);
+    FlattenedJsonWriter out = new FlattenedJsonWriter(writer,
+        policy.getCharSequenceTranslator(), token == JsonToken.START_OBJECT);
+    try {
+      new Traversal(parser, out, newCursor()).run(token);
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    out.close();
+    assureEndOfInput(parser);
+  }
+
+  private KeyProjection.Cursor newCursor() {
+    return projection == null ? null : projection.newCursor();
+  }
+
+  private JsonToken firstToken(JsonParser parser) {
+    JsonToken token = parser.nextToken();
+    if (token == null) throw new StreamReadException(parser, "No content to flatten");
+    return token;
+  }
+
+  private void assureEndOfInput(JsonParser parser) {
+    if (parser.nextToken() != null) {
+      throw new StreamReadException(parser,
+          "Trailing token (" + parser.currentToken() + ") found after the JSON value");
+    }
+  }
+
+  private <T> JsonifyArrayList<T> newJsonifyArrayList() {
+    JsonifyArrayList<T> array = new JsonifyArrayList<>();
+    array.setTranslator(policy.getCharSequenceTranslator());
+    return array;
+  }
+
+  private <K, V> JsonifyLinkedHashMap<K, V> newJsonifyLinkedHashMap() {
+    JsonifyLinkedHashMap<K, V> map = new JsonifyLinkedHashMap<>();
+    map.setTranslator(policy.getCharSequenceTranslator());
+    return map;
+  }
+
+  private Object scalar(JsonParser parser, JsonToken token) {
+    switch (token) {
+      case VALUE_STRING:
+        return parser.getString();
+      case VALUE_NUMBER_INT:
+        // Same Java types as JsonValueUtils#toJavaNumber picks for a parsed JSON integer
+        switch (parser.getNumberType()) {
+          case INT:
+            return parser.getIntValue();
+          case LONG:
+            return parser.getLongValue();
+          default:
+            return parser.getBigIntegerValue();
+        }
+      case VALUE_NUMBER_FLOAT:
+        return JsonValueUtils.toJavaNumber(BigDecimal.valueOf(parser.getDoubleValue()));
+      case VALUE_TRUE:
+        return Boolean.TRUE;
+      case VALUE_FALSE:
+        return Boolean.FALSE;
+      case VALUE_NULL:
+        return null;
+      default:
+        throw new StreamReadException(parser, "Unexpected token (" + token + ")");
+    }
+  }
+
+  /**
+   * {@link Traversal} walks one JSON value of the token stream depth-first and emits its flattened
+   * key/value pairs. The only state it keeps is the key of the current position and the index of
+   * every array it is inside. The objects and arrays skipped by its {@link KeyProjection.Cursor}
+   * are passed over by the parser.
+   */
+  private final class Traversal {
+
+    private static final int OBJECT = -1;
+
+    private final JsonParser parser;
+    private FlattenedEntryConsumer sink;
+    private final FlattenedKeyBuilder keys = new FlattenedKeyBuilder(flattenMode, separator,
+        leftBracket, rightBracket, keyTrans, ignoreReservedCharacters);
+    private final KeyProjection.Cursor cursor;
+
+    // OBJECT for an object, otherwise the current index of an array
+    private int[] frames = new int[16];
+    private int depth = 0;
+
+    private Traversal(JsonParser parser, FlattenedEntryConsumer sink,
+        KeyProjection.Cursor cursor) {
+      this.parser = parser;
+      this.sink = sink;
+      this.cursor = cursor;
+    }
+
+    // A Traversal is back at the root after every run, so it can walk the next JSON value
+    private Traversal withSink(FlattenedEntryConsumer sink) {
+      this.sink = sink;
+      return this;
+    }
+
+    private void run(JsonToken token) {
+      while (true) {
+        if (token == JsonToken.START_OBJECT) {
+          token = parser.nextToken();
+          if (token == JsonToken.END_OBJECT) {
+            emit(newJsonifyLinkedHashMap());
+          } else {
+            push(OBJECT);
+            boolean kept = pushKey(parser.currentName());
+            token = parser.nextToken();
+            if (kept) continue;
+            parser.skipChildren();
+          }
+        } else if (token == JsonToken.START_ARRAY) {
+          switch (flattenMode) {
+            case KEEP_ARRAYS:
+              emit(readArray());
+              break;
+            case KEEP_PRIMITIVE_ARRAYS:
+              JsonifyArrayList<Object> primitives = newJsonifyArrayList();
+              token = parser.nextToken();
+              while (token != JsonToken.END_ARRAY && !token.isStructStart()) {
+                primitives.add(scalar(parser, token));
+                token = parser.nextToken();
+              }
+              if (token == JsonToken.END_ARRAY) {
+                emit(primitives);
+                break;
+              }
+
+              push(0);
+              for (Object primitive : primitives) {
+                if (pushIndex(frames[depth - 1]++)) emit(primitive);
+                keys.pop();
+              }
+              if (pushIndex(frames[depth - 1])) continue;
+              parser.skipChildren();
+              break;
+            default:
+              token = parser.nextToken();
+              if (token == JsonToken.END_ARRAY) {
+                emit(newJsonifyArrayList());
+              } else {
+                push(0);
+                if (pushIndex(0)) continue;
+                parser.skipChildren();
+              }
+          }
+        } else {
+          emit(scalar(parser, token));
+        }
+
+        token = next();
+        if (token == null) return;
+      }
+    }
+
+    // Moves to the next value within the current containers, returns null if the root is done
+    private JsonToken next() {
+      while (depth > 0) {
+        JsonToken token = parser.nextToken();
+        keys.pop();
+        if (token.isStructEnd()) {
+          depth--;
+        } else if (frames[depth - 1] == OBJECT) {
+          boolean kept = pushKey(parser.currentName());
+          token = parser.nextToken();
+          if (kept) return token;
+          parser.skipChildren();
+        } else {
+          if (pushIndex(++frames[depth - 1])) return token;
+          parser.skipChildren();
+        }
+      }
+      return null;
+    }
+
+    // Appends the key part of a member, or an empty one if the projection skips the member
+    private boolean pushKey(String key) {
+      if (cursor == null) {
+        keys.pushKey(key);
+        return true;
+      }
+
+      String transformedKey = keys.transformKey(key);
+      if (cursor.enterKey(keys.depth(), transformedKey)) {
+        keys.pushTransformedKey(transformedKey);
+        return true;
+      }
+      keys.pushSkipped();
+      return false;
+    }
+
+    // Appends the key part of an element, or an empty one if the projection skips the element
+    private boolean pushIndex(int index) {
+      if (cursor == null || cursor.enterIndex(keys.depth(), index)) {
+        keys.pushIndex(index);
+        return true;
+      }
+      keys.pushSkipped();
+      return false;
+    }
+
+    private void push(int frame) {
+      if (depth == frames.length) frames = Arrays.copyOf(frames, depth * 2);
+      frames[depth++] = frame;
+    }
+
+    private void emit(Object value) {
+      if (cursor != null && !cursor.includes(keys.depth())) return;
+      String key = keys.toString();
+      // Check NOT empty JSON object
+      if (!ROOT.equals(key) || !EMPTY_MAP.equals(value)) {
+        sink.accept(key, value);
+      }
+    }
+
+    private JsonifyArrayList<Object> readArray() {
+      JsonifyArrayList<Object> array = newJsonifyArrayList();
+      JsonToken token;
+      while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+        if (token == JsonToken.START_ARRAY) {
+          array.add(readArray());
+        } else if (token == JsonToken.START_OBJECT) {
+          JsonifyLinkedHashMap<String, Object> map = newJsonifyLinkedHashMap();
+          // The projection matches the keys of the whole JSON, not the ones within a kept array
+          new Traversal(parser, map::put, null).run(token);
+          array.add(map);
+        } else {
+          array.add(scalar(parser, token));
+        }
+      }
+      return array;
+    }
+
+  }
+
+}
@@ -15,15 +15,7 @@
  */
 package com.github.wnameless.json.flattener;
 
-import static java.util.Collections.unmodifiableMap;
-import java.util.Collections;
-import java.util.HashMap;
-import org.apache.commons.text.StringEscapeUtils;
-import org.apache.commons.text.translate.AggregateTranslator;
 import org.apache.commons.text.translate.CharSequenceTranslator;
-import org.apache.commons.text.translate.EntityArrays;
-import org.apache.commons.text.translate.JavaUnicodeEscaper;
-import org.apache.commons.text.translate.LookupTranslator;
 
 /**
  * 
@@ -38,57 +30,27 @@ public enum StringEscapePolicy implements CharSequenceTranslatorFactory {
   /**
    * Escapes all JSON special characters and Unicode.
    */
-  ALL(StringEscapeUtils.ESCAPE_JSON),
+  ALL(new JsonStringEscaper(true, 0x7e)),
 
   /**
    * Escapes all JSON special characters and Unicode but slash('/').
    */
-  ALL_BUT_SLASH(new AggregateTranslator(
-      new LookupTranslator(unmodifiableMap(new HashMap<CharSequence, CharSequence>() {
-        private static final long serialVersionUID = 1L;
-        {
-          put("\"", "\\\"");
-          put("\\", "\\\\");
-        }
-      })), new LookupTranslator(EntityArrays.JAVA_CTRL_CHARS_ESCAPE),
-      JavaUnicodeEscaper.outsideOf(32, 0x7f))),
+  ALL_BUT_SLASH(new JsonStringEscaper(false, 0x7f)),
 
   /**
    * Escapes all JSON special characters but Unicode.
    */
-  ALL_BUT_UNICODE(new AggregateTranslator(
-      new LookupTranslator(unmodifiableMap(new HashMap<CharSequence, CharSequence>() {
-        private static final long serialVersionUID = 1L;
-        {
-          put("\"", "\\\"");
-          put("\\", "\\\\");
-          put("/", "\\/");
-        }
-      })), new LookupTranslator(EntityArrays.JAVA_CTRL_CHARS_ESCAPE))),
+  ALL_BUT_UNICODE(new JsonStringEscaper(true, -1)),
 
   /**
    * Escapes all JSON special characters but slash('/') and Unicode.
    */
-  ALL_BUT_SLASH_AND_UNICODE(new AggregateTranslator(
-      new LookupTranslator(Collections.unmodifiableMap(new HashMap<CharSequence, CharSequence>() {
-        private static final long serialVersionUID = 1L;
-        {
-          put("\"", "\\\"");
-          put("\\", "\\\\");
-        }
-      })), new LookupTranslator(EntityArrays.JAVA_CTRL_CHARS_ESCAPE))),
+  ALL_BUT_SLASH_AND_UNICODE(new JsonStringEscaper(false, -1)),
 
   /**
    * Escapes all JSON special characters but slash('/') and Unicode.
    */
-  DEFAULT(new AggregateTranslator(
-      new LookupTranslator(unmodifiableMap(new HashMap<CharSequence, CharSequence>() {
-        private static final long serialVersionUID = 1L;
-        {
-          put("\"", "\\\"");
-          put("\\", "\\\\");
-        }
-      })), new LookupTranslator(EntityArrays.JAVA_CTRL_CHARS_ESCAPE)));
+  DEFAULT(new JsonStringEscaper(false, -1));
 
   private final CharSequenceTranslator translator;
 
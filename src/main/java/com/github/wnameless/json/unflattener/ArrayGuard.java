@@ -0,0 +1,72 @@
+/*
+ *
+ * Copyright 2026 Wei-Ming Wu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package com.github.wnameless.json.unflattener;
+
+/**
+ *
+ * {@link ArrayGuard} bounds the array indexes of the flattened keys and the number of nulls which
+ * fill the gaps of the unflattened arrays, so a single key such as {@code a[50000000]} fails fast
+ * before any gap is filled. Each unflattening uses its own {@link ArrayGuard}.
+ *
+ * @author Wei-Ming Wu
+ *
+ */
+final class ArrayGuard {
+
+  private final int maxArrayIndex;
+  private final long maxArrayPadding;
+  private long padding = 0;
+
+  ArrayGuard(int maxArrayIndex, long maxArrayPadding) {
+    this.maxArrayIndex = maxArrayIndex;
+    this.maxArrayPadding = maxArrayPadding;
+  }
+
+  /**
+   * Checks the array index of the given flattened key.
+   *
+   * @param index an array index
+   * @param key the flattened key of the index
+   * @return the array index
+   * @throws IllegalArgumentException if the index exceeds the maximum array index
+   */
+  int checkIndex(int index, String key) {
+    if (index > maxArrayIndex) {
+      throw new IllegalArgumentException("Array index(" + index + ") of key(" + key
+          + ") exceeds the maximum array index(" + maxArrayIndex + ")");
+    }
+    return index;
+  }
+
+  /**
+   * Counts the nulls needed to fill the gap before the given index of an array.
+   *
+   * @param size the size of an array
+   * @param index the array index to be set
+   * @throws IllegalArgumentException if the total number of nulls exceeds the maximum array padding
+   */
+  void checkPadding(int size, int index) {
+    if (index <= size) return;
+
+    padding += index - size;
+    if (padding > maxArrayPadding) {
+      throw new IllegalArgumentException(
+          "Array padding(" + padding + ") exceeds the maximum array padding(" + maxArrayPadding
+              + ")");
+    }
+  }
+
+}
@@ -0,0 +1,228 @@
+/*
+ *
+ * Copyright 2026 Wei-Ming Wu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package com.github.wnameless.json.unflattener;
+
+import static com.github.wnameless.json.flattener.FlattenMode.MONGODB;
+import com.github.wnameless.json.flattener.FlattenMode;
+
+/**
+ *
+ * {@link FlattenedKeyTokenizer} splits a flattened key into its object key and array index parts
+ * in a single pass over the characters of the key.<br>
+ * <br>
+ * Except in {@link FlattenMode#MONGODB}, a key is made of array indexes like [0], quoted object
+ * keys like ["a.b"] and plain object keys which are delimited by the separator and the brackets.
+ * Characters which belong to none of them, such as a stray separator, are skipped.<br>
+ * <br>
+ * In {@link FlattenMode#MONGODB}, a key is split by every separator and each part, including an
+ * empty one, is an array index if it consists of digits only or an object key otherwise.
+ *
+ * @author Wei-Ming Wu
+ *
+ */
+final class FlattenedKeyTokenizer {
+
+  private final boolean mongodb;
+  private final char separator;
+  private final char leftBracket;
+  private final char rightBracket;
+
+  private String key;
+  private int length;
+  private int pos;
+
+  private boolean index;
+  private int start;
+  private int end;
+
+  FlattenedKeyTokenizer(FlattenMode flattenMode, char separator, char leftBracket,
+      char rightBracket) {
+    mongodb = flattenMode == MONGODB;
+    this.separator = separator;
+    this.leftBracket = leftBracket;
+    this.rightBracket = rightBracket;
+  }
+
+  /**
+   * Starts to tokenize the given flattened key.
+   *
+   * @param key a flattened key
+   */
+  void reset(String key) {
+    this.key = key;
+    length = key.length();
+    // An empty key has no part at all, even in MONGODB mode
+    pos = mongodb && length == 0 ? 1 : 0;
+  }
+
+  /**
+   * Advances to the next part of the key.
+   *
+   * @return true if a part is found, false if the key is exhausted
+   */
+  boolean next() {
+    return mongodb ? nextSegment() : nextToken();
+  }
+
+  /**
+   * Returns true if the current part is an array index.
+   *
+   * @return true if the current part is an array index
+   */
+  boolean isIndex() {
+    return index;
+  }
+
+  /**
+   * Returns the current part as an array index.
+   *
+   * @return an array index
+   * @throws NumberFormatException if the index is too large for an int
+   */
+  int index() {
+    return Integer.parseInt(key, start, end, 10);
+  }
+
+  /**
+   * Returns the current part as an object key. A quoted key is returned without its quotes and
+   * brackets.
+   *
+   * @return an object key
+   */
+  String key() {
+    return key.substring(start, end);
+  }
+
+  private boolean nextToken() {
+    while (pos < length) {
+      char c = key.charAt(pos);
+      if (c == leftBracket) {
+        if (matchIndex() || matchQuotedKey()) return true;
+        pos++;
+      } else if (c == separator || c == rightBracket) {
+        pos++;
+      } else {
+        start = pos;
+        do {
+          pos++;
+        } while (pos < length && !isDelimiter(key.charAt(pos)));
+        end = pos;
+        index = false;
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private boolean isDelimiter(char c) {
+    return c == separator || c == leftBracket || c == rightBracket;
+  }
+
+  // [ \s* \d+ \s* ]
+  private boolean matchIndex() {
+    int i = skipWhitespaces(pos + 1);
+    int digitStart = i;
+    while (i < length && isDigit(key.charAt(i))) i++;
+    if (i == digitStart) return false;
+    int digitEnd = i;
+    i = skipWhitespaces(i);
+    if (i >= length || key.charAt(i) != rightBracket) return false;
+
+    index = true;
+    start = digitStart;
+    end = digitEnd;
+    pos = i + 1;
+    return true;
+  }
+
+  // [ \s* " any characters but line terminators, as few as possible " \s* ]
+  private boolean matchQuotedKey() {
+    int open = skipWhitespaces(pos + 1);
+    if (open >= length || key.charAt(open) != '"') return false;
+
+    for (int i = open + 1; i < length; i++) {
+      char c = key.charAt(i);
+      if (isLineTerminator(c)) return false;
+      if (c == '"') {
+        int close = skipWhitespaces(i + 1);
+        if (close < length && key.charAt(close) == rightBracket) {
+          index = false;
+          start = open + 1;
+          end = i;
+          pos = close + 1;
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private boolean nextSegment() {
+    if (pos > length) return false;
+
+    int sepIdx = key.indexOf(separator, pos);
+    if (sepIdx == -1) sepIdx = length;
+    start = pos;
+    end = sepIdx;
+    pos = sepIdx + 1;
+
+    index = start != end;
+    for (int i = start; index && i < end; i++) {
+      index = isDigit(key.charAt(i));
+    }
+    if (!index) unquoteSegment();
+    return true;
+  }
+
+  private void unquoteSegment() {
+    if (end - start < 2 || key.charAt(start) != leftBracket
+        || key.charAt(end - 1) != rightBracket) {
+      return;
+    }
+
+    int open = skipWhitespaces(start + 1);
+    int close = end - 2;
+    while (close > open && isWhitespace(key.charAt(close))) close--;
+    if (close <= open || key.charAt(open) != '"' || key.charAt(close) != '"') return;
+    for (int i = open + 1; i < close; i++) {
+      if (isLineTerminator(key.charAt(i))) return;
+    }
+
+    start = open + 1;
+    end = close;
+  }
+
+  private int skipWhitespaces(int i) {
+    while (i < length && isWhitespace(key.charAt(i))) i++;
+    return i;
+  }
+
+  // Same as \s in java.util.regex
+  private static boolean isWhitespace(char c) {
+    return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+  }
+
+  // Same as \d in java.util.regex
+  private static boolean isDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+
+  // Characters which are not matched by . in java.util.regex
+  private static boolean isLineTerminator(char c) {
+    return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+  }
+
+}
@@ -15,26 +15,24 @@
  */
 package com.github.wnameless.json.unflattener;
 
-import static com.github.wnameless.json.flattener.FlattenMode.MONGODB;
 import static org.apache.commons.lang3.Validate.isTrue;
 import java.io.IOException;
 import java.io.Reader;
 import java.io.StringWriter;
-import java.util.HashMap;
+import java.io.UncheckedIOException;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import com.github.wnameless.json.base.Jackson3JsonCore;
 import com.github.wnameless.json.base.JsonArrayCore;
 import com.github.wnameless.json.base.JsonCore;
 import com.github.wnameless.json.base.JsonObjectCore;
-import com.github.wnameless.json.base.JsonPrinter;
 import com.github.wnameless.json.base.JsonValueBase;
 import com.github.wnameless.json.base.JsonValueCore;
 import com.github.wnameless.json.flattener.FlattenMode;
 import com.github.wnameless.json.flattener.JsonifyLinkedHashMap;
 import com.github.wnameless.json.flattener.KeyTransformer;
+import com.github.wnameless.json.flattener.PrettyJsonWriter;
 import com.github.wnameless.json.flattener.PrintMode;
 
 /**
@@ -55,11 +53,6 @@ public final class JsonUnflattener {
    */
   public static final String ROOT = "root";
 
-  private static final Pattern naturalNumberPattern = Pattern.compile("\\d+");
-  private static final Pattern illegalSeparatorPattern = Pattern.compile("[\"\\s]");
-
-  private final Map<String, Pattern> patternCache = new HashMap<>();
-
   /**
    * Returns a JSON string of nested objects by the given flattened JSON string.
    * 
@@ -101,27 +94,42 @@ public final class JsonUnflattener {
   }
 
   private final JsonCore<?> jsonCore;
-  private final JsonValueCore<?> root;
+  private final JsonValueFactory values;
+  private final Map<String, ?> flattenedMap;
+  private JsonValueCore<?> root;
 
   private FlattenMode flattenMode = FlattenMode.NORMAL;
   private Character separator = '.';
   private Character leftBracket = '[';
   private Character rightBracket = ']';
   private PrintMode printMode = PrintMode.MINIMAL;
+  private String indent = PrettyJsonWriter.DEFAULT_INDENT;
   private KeyTransformer keyTrans = null;
+  private KeyGrammar grammar = KeyGrammar.of(flattenMode, separator, leftBracket, rightBracket);
+  private int maxArrayIndex = Integer.MAX_VALUE;
+  private long maxArrayPadding = Long.MAX_VALUE;
+  private ArrayGuard arrayGuard;
 
   private JsonUnflattener newJsonUnflattener(JsonValueCore<?> jsonValue) {
+    // The configuration of this JsonUnflattener has been validated already
     JsonUnflattener ju = new JsonUnflattener(jsonValue);
-    ju.withFlattenMode(flattenMode);
-    ju.withSeparator(separator);
-    ju.withLeftAndRightBrackets(leftBracket, rightBracket);
-    ju.withPrintMode(printMode);
-    ju.withKeyTransformer(keyTrans);
+    ju.flattenMode = flattenMode;
+    ju.separator = separator;
+    ju.leftBracket = leftBracket;
+    ju.rightBracket = rightBracket;
+    ju.printMode = printMode;
+    ju.indent = indent;
+    ju.keyTrans = keyTrans;
+    ju.grammar = grammar;
+    ju.maxArrayIndex = maxArrayIndex;
+    ju.maxArrayPadding = maxArrayPadding;
     return ju;
   }
 
   private JsonUnflattener(JsonValueCore<?> root) {
     jsonCore = new Jackson3JsonCore();
+    values = JsonValueFactory.of(this.jsonCore);
+    flattenedMap = null;
     this.root = root;
   }
 
@@ -136,6 +144,8 @@ public final class JsonUnflattener {
    */
   public JsonUnflattener(String json) {
     jsonCore = new Jackson3JsonCore();
+    values = JsonValueFactory.of(this.jsonCore);
+    this.flattenedMap = null;
     root = parseJson(json);
   }
 
@@ -148,6 +158,8 @@ public final class JsonUnflattener {
   public JsonUnflattener(JsonCore<?> jsonCore, String json) {
     if (jsonCore == null) throw new NullPointerException();
     this.jsonCore = jsonCore;
+    values = JsonValueFactory.of(this.jsonCore);
+    this.flattenedMap = null;
     root = parseJson(json);
   }
 
@@ -159,6 +171,8 @@ public final class JsonUnflattener {
    */
   public JsonUnflattener(Reader jsonReader) throws IOException {
     jsonCore = new Jackson3JsonCore();
+    values = JsonValueFactory.of(this.jsonCore);
+    this.flattenedMap = null;
     root = jsonCore.parse(jsonReader);
   }
 
@@ -172,6 +186,8 @@ public final class JsonUnflattener {
   public JsonUnflattener(JsonCore<?> jsonCore, Reader jsonReader) throws IOException {
     if (jsonCore == null) throw new NullPointerException();
     this.jsonCore = jsonCore;
+    values = JsonValueFactory.of(this.jsonCore);
+    this.flattenedMap = null;
     root = jsonCore.parse(jsonReader);
   }
 
@@ -182,7 +198,15 @@ public final class JsonUnflattener {
    */
   public JsonUnflattener(Map<String, ?> flattenedMap) {
     jsonCore = new Jackson3JsonCore();
-    root = jsonCore.parse(new JsonifyLinkedHashMap<>(flattenedMap).toString());
+    values = JsonValueFactory.of(this.jsonCore);
+    Map<String, ?> copy = new LinkedHashMap<>(flattenedMap);
+    if (MapUnflattener.isJsonCompatible(copy)) {
+      // The JSON of the flattened Map is only needed by unflatten()
+      this.flattenedMap = copy;
+    } else {
+      this.flattenedMap = null;
+      root = jsonCore.parse(new JsonifyLinkedHashMap<>(copy).toString());
+    }
   }
 
   /**
@@ -194,64 +218,16 @@ public final class JsonUnflattener {
   public JsonUnflattener(JsonCore<?> jsonCore, Map<String, ?> flattenedMap) {
     if (jsonCore == null) throw new NullPointerException();
     this.jsonCore = jsonCore;
+    values = JsonValueFactory.of(this.jsonCore);
+    this.flattenedMap = null;
     root = jsonCore.parse(new JsonifyLinkedHashMap<>(flattenedMap).toString());
   }
 
-  private Pattern arrayIndexPattern() {
-    String regex = Pattern.quote(leftBracket.toString()) + "\\s*\\d+\\s*"
-        + Pattern.quote(rightBracket.toString());
-    if (!patternCache.containsKey(regex)) {
-      patternCache.put(regex, Pattern.compile(regex));
-    }
-    return patternCache.get(regex);
-  }
-
-  private Pattern objectComplexKeyPattern() {
-    String regex = Pattern.quote(leftBracket.toString()) + "\\s*\".*?\"\\s*"
-        + Pattern.quote(rightBracket.toString());
-    if (!patternCache.containsKey(regex)) {
-      patternCache.put(regex, Pattern.compile(regex));
-    }
-    return patternCache.get(regex);
-  }
-
-  private Pattern objectKeyPattern() {
-    String regex = "[^" + Pattern.quote(separator.toString())
-        + Pattern.quote(leftBracket.toString()) + Pattern.quote(rightBracket.toString()) + "]+";
-    if (!patternCache.containsKey(regex)) {
-      patternCache.put(regex, Pattern.compile(regex));
-    }
-    return patternCache.get(regex);
-  }
-
-  private Pattern keyPartPattern() {
-    if (flattenMode.equals(MONGODB)) {
-      // Escape the separator character for regex patterns
-      String separatorRegex = Pattern.quote(separator.toString());
-
-      // Escape the separator character for character classes
-      String separatorCharClass =
-          "\\^-$[]".contains(separator.toString()) ? "\\" + separator : separator.toString();
-
-      // Construct the regex pattern
-      String regex = "\\b[^" + separatorCharClass + "\\s]+\\b" // Words not containing the separator
-          + "|^(?=" + separatorRegex + ")" // Empty string before separator at start
-          + "|(?<=" + separatorRegex + ")$" // Empty string after separator at end
-          + "|(?<=" + separatorRegex + ")(?=" + separatorRegex + ")"; // Empty strings between
-                                                                      // separators
-
-      if (!patternCache.containsKey(regex)) {
-        patternCache.put(regex, Pattern.compile(regex));
-      }
-      return patternCache.get(regex);
-    } else {
-      String regex = arrayIndexPattern().pattern() + "|" + objectComplexKeyPattern().pattern() + "|"
-          + objectKeyPattern().pattern();
-      if (!patternCache.containsKey(regex)) {
-        patternCache.put(regex, Pattern.compile(regex));
-      }
-      return patternCache.get(regex);
+  private JsonValueCore<?> root() {
+    if (root == null) {
+      root = jsonCore.parse(new JsonifyLinkedHashMap<>(flattenedMap).toString());
     }
+    return root;
   }
 
   /**
@@ -263,6 +239,7 @@ public final class JsonUnflattener {
   public JsonUnflattener withFlattenMode(FlattenMode flattenMode) {
     if (flattenMode == null) throw new NullPointerException();
     this.flattenMode = flattenMode;
+    updateGrammar();
     return this;
   }
 
@@ -275,18 +252,19 @@ public final class JsonUnflattener {
    */
   public JsonUnflattener withSeparator(char separator) {
     String separatorStr = String.valueOf(separator);
-    isTrue(!illegalSeparatorPattern.matcher(separatorStr).matches(),
-        "Separator contains illegal character(%s)", separatorStr);
+    isTrue(!KeyGrammar.isIllegalSeparator(separator), "Separator contains illegal character(%s)",
+        separatorStr);
     isTrue(!leftBracket.equals(separator) && !rightBracket.equals(separator),
         "Separator(%s) is already used in brackets", separatorStr);
 
-    patternCache.clear();
     this.separator = separator;
+    updateGrammar();
     return this;
   }
 
-  private Pattern illegalBracketsPattern() {
-    return Pattern.compile("[\"\\s" + Pattern.quote(separator.toString()) + "]");
+  // Looks up the shared KeyGrammar of the current configuration
+  private void updateGrammar() {
+    grammar = KeyGrammar.of(flattenMode, separator, leftBracket, rightBracket);
   }
 
   /**
@@ -301,15 +279,14 @@ public final class JsonUnflattener {
     isTrue(leftBracket != rightBracket, "Both brackets cannot be the same");
     String leftBracketStr = String.valueOf(leftBracket);
     String rightBracketStr = String.valueOf(rightBracket);
-    Pattern illegalBracketsPattern = illegalBracketsPattern();
-    isTrue(!illegalBracketsPattern.matcher(leftBracketStr).matches(),
-        "Left bracket contains illegal character(%s)", leftBracketStr);
-    isTrue(!illegalBracketsPattern.matcher(rightBracketStr).matches(),
-        "Right bracket contains illegal character(%s)", rightBracketStr);
+    isTrue(!grammar.isIllegalBracket(leftBracket), "Left bracket contains illegal character(%s)",
+        leftBracketStr);
+    isTrue(!grammar.isIllegalBracket(rightBracket), "Right bracket contains illegal character(%s)",
+        rightBracketStr);
 
-    patternCache.clear();
     this.leftBracket = leftBracket;
     this.rightBracket = rightBracket;
+    updateGrammar();
     return this;
   }
 
@@ -326,6 +303,19 @@ public final class JsonUnflattener {
     return this;
   }
 
+  /**
+   * A fluent setter to setup the indent of {@link PrintMode#PRETTY} of the
+   * {@link JsonUnflattener}. The default indent is 2 spaces.
+   * 
+   * @param indent an indent which consists of spaces and tabs only
+   * @return this {@link JsonUnflattener}
+   */
+  public JsonUnflattener withIndent(String indent) {
+    PrettyJsonWriter.validateIndent(indent);
+    this.indent = indent;
+    return this;
+  }
+
   /**
    * A fluent setter to setup a {@link KeyTransformer} of the {@link JsonUnflattener}.
    * 
@@ -337,12 +327,46 @@ public final class JsonUnflattener {
     return this;
   }
 
-  private String writeByConfig(JsonValueBase<?> jsonValue) {
+  /**
+   * A fluent setter to setup the maximum array index of the flattened keys. Unflattening fails with
+   * an IllegalArgumentException as soon as a key with a greater index is found. There is no limit
+   * by default.
+   * 
+   * @param maxArrayIndex the maximum array index
+   * @return this {@link JsonUnflattener}
+   */
+  public JsonUnflattener withMaxArrayIndex(int maxArrayIndex) {
+    isTrue(maxArrayIndex >= 0, "Maximum array index(%s) cannot be negative", maxArrayIndex);
+    this.maxArrayIndex = maxArrayIndex;
+    return this;
+  }
+
+  /**
+   * A fluent setter to setup the maximum number of nulls which fill the gaps of all unflattened
+   * arrays, such as the nulls before the element of a key like a[1000]. Unflattening fails with an
+   * IllegalArgumentException before the gap which exceeds the maximum is filled. There is no limit
+   * by default.
+   * 
+   * @param maxArrayPadding the maximum number of nulls filling the gaps of arrays
+   * @return this {@link JsonUnflattener}
+   */
+  public JsonUnflattener withMaxArrayPadding(long maxArrayPadding) {
+    isTrue(maxArrayPadding >= 0, "Maximum array padding(%s) cannot be negative", maxArrayPadding);
+    this.maxArrayPadding = maxArrayPadding;
+    return this;
+  }
+
+  private void writeByConfig(JsonValueBase<?> jsonValue, StringWriter sw) {
     switch (printMode) {
       case PRETTY:
-        return JsonPrinter.prettyPrint(jsonValue.toJson());
+        try (PrettyJsonWriter writer = new PrettyJsonWriter(sw, indent)) {
+          writer.write(jsonValue.toJson());
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+        break;
       default:
-        return jsonValue.toJson();
+        sw.write(jsonValue.toJson());
     }
   }
 
@@ -352,10 +376,11 @@ public final class JsonUnflattener {
    * @return a JSON string of nested objects
    */
   public String unflatten() {
+    JsonValueCore<?> root = root();
     StringWriter sw = new StringWriter();
     if (root.isArray()) {
       JsonArrayCore<?> unflattenedArray = unflattenArray(root.asArray());
-      sw.append(writeByConfig(unflattenedArray.asValue()));
+      writeByConfig(unflattenedArray.asValue(), sw);
       return sw.toString();
     }
     if (!root.isObject()) {
@@ -363,8 +388,11 @@ public final class JsonUnflattener {
     }
 
     JsonObjectCore<?> flattened = root.asObject();
-    JsonValueCore<?> unflattened = flattened.isEmpty() ? jsonCore.parse("{}").asValue() : null;
+    arrayGuard = new ArrayGuard(maxArrayIndex, maxArrayPadding);
+    JsonValueCore<?> unflattened = flattened.isEmpty() ? values.newObject().asValue() : null;
 
+    FlattenedKeyTokenizer keyParts = grammar.newTokenizer();
+    ResolvedKeyPath<JsonValueCore<?>> keyPath = new ResolvedKeyPath<>();
     Iterator<String> names = flattened.names();
     while (names.hasNext()) {
       String key = names.next();
@@ -372,42 +400,46 @@ public final class JsonUnflattener {
       String objKey = null;
       Integer aryIdx = null;
 
-      Matcher matcher = keyPartPattern().matcher(key);
-      while (matcher.find()) {
-        String keyPart = matcher.group();
-
+      keyParts.reset(key);
+      keyPath.start();
+      while (keyParts.next()) {
         if (objKey != null ^ aryIdx != null) {
-          if (isJsonArray(keyPart)) {
-            currentVal = findOrCreateJsonArray(currentVal, objKey, aryIdx).asValue();
+          // The container of the previous key which holds the same key parts, if any
+          JsonValueCore<?> container = keyPath.resume(keyParts.isIndex());
+          if (keyParts.isIndex()) {
+            currentVal = container != null ? container
+                : findOrCreateJsonArray(currentVal, objKey, aryIdx).asValue();
             objKey = null;
-            aryIdx = extractIndex(keyPart);
+            aryIdx = arrayGuard.checkIndex(keyParts.index(), key);
           } else { // JSON object
             if (flattened.get(key).isArray()) { // KEEP_ARRAYS mode
               flattened.set(key, unflattenArray(flattened.get(key).asArray()));
             }
-            currentVal = findOrCreateJsonObject(currentVal, objKey, aryIdx).asValue();
-            objKey = extractKey(keyPart);
+            currentVal = container != null ? container
+                : findOrCreateJsonObject(currentVal, objKey, aryIdx).asValue();
+            objKey = extractKey(keyParts);
             aryIdx = null;
           }
         }
 
         if (objKey == null && aryIdx == null) {
-          if (isJsonArray(keyPart)) {
-            aryIdx = extractIndex(keyPart);
-            if (currentVal == null) currentVal = jsonCore.parse("[]").asValue();
+          if (keyParts.isIndex()) {
+            aryIdx = arrayGuard.checkIndex(keyParts.index(), key);
+            if (currentVal == null) currentVal = values.newArray().asValue();
           } else { // JSON object
-            objKey = extractKey(keyPart);
-            if (currentVal == null) currentVal = jsonCore.parse("{}").asValue();
+            objKey = extractKey(keyParts);
+            if (currentVal == null) currentVal = values.newObject().asValue();
           }
         }
 
+        keyPath.add(currentVal, objKey, aryIdx);
         if (unflattened == null) unflattened = currentVal;
       }
 
       setUnflattenedValue(flattened, key, currentVal, objKey, aryIdx);
     }
 
-    sw.append(writeByConfig(unflattened));
+    writeByConfig(unflattened, sw);
     return sw.toString();
   }
 
@@ -417,18 +449,33 @@ public final class JsonUnflattener {
    * @return a Java Map of nested objects
    */
   public Map<String, Object> unflattenAsMap() {
-    JsonValueCore<?> flattenedValue = jsonCore.parse(unflatten());
-    if (flattenedValue.isArray() || !flattenedValue.isObject()) {
-      JsonObjectCore<?> jsonObj = jsonCore.parse("{}").asObject();
-      jsonObj.set(ROOT, flattenedValue);
+    MapUnflattener mapUnflattener = new MapUnflattener(grammar, keyTrans,
+        new ArrayGuard(maxArrayIndex, maxArrayPadding));
+    Object unflattened;
+    if (flattenedMap != null) {
+      unflattened = mapUnflattener.unflatten(flattenedMap);
+    } else if (root.isObject() || root.isArray()) {
+      // The parsed flattened JSON is walked once, no nested JSON is written and parsed back
+      unflattened = mapUnflattener.unflatten(root);
+    } else {
+      JsonObjectCore<?> jsonObj = values.newObject();
+      jsonObj.set(ROOT, jsonCore.parse(unflatten()));
       return jsonObj.toMap();
+    }
+
+    if (unflattened instanceof Map) {
+      @SuppressWarnings("unchecked")
+      Map<String, Object> unflattenedMap = (Map<String, Object>) unflattened;
+      return unflattenedMap;
     } else {
-      return flattenedValue.asObject().toMap();
+      Map<String, Object> rootMap = new LinkedHashMap<>();
+      rootMap.put(ROOT, unflattened);
+      return rootMap;
     }
   }
 
   private JsonArrayCore<?> unflattenArray(JsonArrayCore<?> array) {
-    JsonArrayCore<?> unflattenArray = jsonCore.parse("[]").asArray();
+    JsonArrayCore<?> unflattenArray = values.newArray();
 
     for (JsonValueCore<?> value : array) {
       if (value.isArray()) {
@@ -445,35 +492,18 @@ public final class JsonUnflattener {
     return unflattenArray;
   }
 
-  private String extractKey(String keyPart) {
-    if (objectComplexKeyPattern().matcher(keyPart).matches()) {
-      keyPart = keyPart.replaceAll("^" + Pattern.quote(leftBracket.toString()) + "\\s*\"", "");
-      keyPart = keyPart.replaceAll("\"\\s*" + Pattern.quote(rightBracket.toString()) + "$", "");
-    }
-
+  private String extractKey(FlattenedKeyTokenizer keyParts) {
+    String keyPart = keyParts.key();
     return keyTrans != null ? keyTrans.transform(keyPart) : keyPart;
   }
 
-  private Integer extractIndex(String keyPart) {
-    if (flattenMode.equals(MONGODB))
-      return Integer.valueOf(keyPart);
-    else
-      return Integer.valueOf(keyPart.replaceAll("[" + Pattern.quote(leftBracket.toString())
-          + Pattern.quote(rightBracket.toString()) + "\\s]", ""));
-  }
-
-  private boolean isJsonArray(String keyPart) {
-    return arrayIndexPattern().matcher(keyPart).matches()
-        || (flattenMode.equals(MONGODB) && naturalNumberPattern.matcher(keyPart).matches());
-  }
-
   private JsonArrayCore<?> findOrCreateJsonArray(JsonValueCore<?> currentVal, String objKey,
       Integer aryIdx) {
     if (objKey != null) {
       JsonObjectCore<?> jsonObj = currentVal.asObject();
 
       if (jsonObj.get(objKey) == null) {
-        JsonArrayCore<?> ary = jsonCore.parse("[]").asArray();
+        JsonArrayCore<?> ary = values.newArray();
         jsonObj.set(objKey, ary);
 
         return ary;
@@ -484,7 +514,7 @@ public final class JsonUnflattener {
       JsonArrayCore<?> jsonAry = currentVal.asArray();
 
       if (jsonAry.size() <= aryIdx || jsonAry.get(aryIdx).isNull()) {
-        JsonArrayCore<?> ary = jsonCore.parse("[]").asArray();
+        JsonArrayCore<?> ary = values.newArray();
         assureJsonArraySize(jsonAry, aryIdx);
         jsonAry.set(aryIdx, ary);
 
@@ -501,7 +531,7 @@ public final class JsonUnflattener {
       JsonObjectCore<?> jsonObj = currentVal.asObject();
 
       if (jsonObj.get(objKey) == null) {
-        JsonObjectCore<?> obj = jsonCore.parse("{}").asObject();
+        JsonObjectCore<?> obj = values.newObject();
         jsonObj.set(objKey, obj);
 
         return obj;
@@ -512,7 +542,7 @@ public final class JsonUnflattener {
       JsonArrayCore<?> jsonAry = currentVal.asArray();
 
       if (jsonAry.size() <= aryIdx || jsonAry.get(aryIdx).isNull()) {
-        JsonObjectCore<?> obj = jsonCore.parse("{}").asObject();
+        JsonObjectCore<?> obj = values.newObject();
         assureJsonArraySize(jsonAry, aryIdx);
         jsonAry.set(aryIdx, obj);
 
@@ -528,7 +558,7 @@ public final class JsonUnflattener {
     JsonValueCore<?> val = flattened.get(key);
     if (objKey != null) {
       if (val.isArray()) {
-        JsonArrayCore<?> jsonArray = jsonCore.parse("[]").asArray();
+        JsonArrayCore<?> jsonArray = values.newArray();
         for (JsonValueCore<?> arrayVal : val.asArray()) {
           jsonArray.add(parseJson(newJsonUnflattener(arrayVal).unflatten()));
         }
@@ -543,15 +573,16 @@ public final class JsonUnflattener {
   }
 
   private void assureJsonArraySize(JsonArrayCore<?> jsonArray, Integer index) {
+    arrayGuard.checkPadding(jsonArray.size(), index);
     while (index >= jsonArray.size()) {
-      jsonArray.add(jsonCore.parse("null"));
+      jsonArray.add(values.nullValue());
     }
   }
 
   @Override
   public int hashCode() {
     int result = 27;
-    result = 31 * result + root.hashCode();
+    result = 31 * result + root().hashCode();
     return result;
   }
 
@@ -559,12 +590,12 @@ public final class JsonUnflattener {
   public boolean equals(Object o) {
     if (this == o) return true;
     if (!(o instanceof JsonUnflattener)) return false;
-    return root.equals(((JsonUnflattener) o).root);
+    return root().equals(((JsonUnflattener) o).root());
   }
 
   @Override
   public String toString() {
-    return "JsonUnflattener{root=" + root + "}";
+    return "JsonUnflattener{root=" + root() + "}";
   }
 
 }
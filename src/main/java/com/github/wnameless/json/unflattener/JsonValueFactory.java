@@ -0,0 +1,123 @@
+/*
+ *
+ * Copyright 2026 Wei-Ming Wu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package com.github.wnameless.json.unflattener;
+
+import com.github.wnameless.json.base.Jackson3JsonArray;
+import com.github.wnameless.json.base.Jackson3JsonCore;
+import com.github.wnameless.json.base.Jackson3JsonObject;
+import com.github.wnameless.json.base.Jackson3JsonValue;
+import com.github.wnameless.json.base.JsonArrayCore;
+import com.github.wnameless.json.base.JsonCore;
+import com.github.wnameless.json.base.JsonObjectCore;
+import com.github.wnameless.json.base.JsonValueCore;
+import tools.jackson.databind.node.JsonNodeFactory;
+import tools.jackson.databind.node.NullNode;
+
+/**
+ *
+ * {@link JsonValueFactory} creates the empty JSON objects, empty JSON arrays and JSON nulls of a
+ * {@link JsonCore}. The nodes of the default {@link Jackson3JsonCore} are allocated directly, while
+ * any other {@link JsonCore} parses its empty containers and parses its JSON null only once.
+ *
+ * @author Wei-Ming Wu
+ *
+ */
+abstract class JsonValueFactory {
+
+  /**
+   * Returns a {@link JsonValueFactory} which creates the JSON values of the given {@link JsonCore}.
+   *
+   * @param jsonCore a {@link JsonCore}
+   * @return a {@link JsonValueFactory}
+   */
+  static JsonValueFactory of(JsonCore<?> jsonCore) {
+    // A subclass may parse JSON into values of its own
+    if (jsonCore.getClass() == Jackson3JsonCore.class) return Jackson3ValueFactory.INSTANCE;
+    return new ParsingValueFactory(jsonCore);
+  }
+
+  /**
+   * Creates a new empty JSON object.
+   *
+   * @return an empty JSON object
+   */
+  abstract JsonObjectCore<?> newObject();
+
+  /**
+   * Creates a new empty JSON array.
+   *
+   * @return an empty JSON array
+   */
+  abstract JsonArrayCore<?> newArray();
+
+  /**
+   * Returns a JSON null, which may be shared since it is immutable.
+   *
+   * @return a JSON null
+   */
+  abstract JsonValueCore<?> nullValue();
+
+  private static final class Jackson3ValueFactory extends JsonValueFactory {
+
+    private static final Jackson3ValueFactory INSTANCE = new Jackson3ValueFactory();
+    private static final JsonNodeFactory nodes = JsonNodeFactory.instance;
+    private static final Jackson3JsonValue NULL = new Jackson3JsonValue(NullNode.getInstance());
+
+    @Override
+    JsonObjectCore<?> newObject() {
+      return new Jackson3JsonObject(nodes.objectNode());
+    }
+
+    @Override
+    JsonArrayCore<?> newArray() {
+      return new Jackson3JsonArray(nodes.arrayNode());
+    }
+
+    @Override
+    JsonValueCore<?> nullValue() {
+      return NULL;
+    }
+
+  }
+
+  private static final class ParsingValueFactory extends JsonValueFactory {
+
+    private final JsonCore<?> jsonCore;
+    private JsonValueCore<?> nullValue;
+
+    private ParsingValueFactory(JsonCore<?> jsonCore) {
+      this.jsonCore = jsonCore;
+    }
+
+    @Override
+    JsonObjectCore<?> newObject() {
+      return jsonCore.parse("{}").asObject();
+    }
+
+    @Override
+    JsonArrayCore<?> newArray() {
+      return jsonCore.parse("[]").asArray();
+    }
+
+    @Override
+    JsonValueCore<?> nullValue() {
+      if (nullValue == null) nullValue = jsonCore.parse("null");
+      return nullValue;
+    }
+
+  }
+
+}
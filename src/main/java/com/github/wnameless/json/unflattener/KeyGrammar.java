@@ -0,0 +1,110 @@
+/*
+ *
+ * Copyright 2026 Wei-Ming Wu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package com.github.wnameless.json.unflattener;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import com.github.wnameless.json.flattener.FlattenMode;
+
+/**
+ *
+ * {@link KeyGrammar} is the immutable grammar of flattened keys, which is made of a
+ * {@link FlattenMode}, a separator and a pair of brackets. Grammars are cached process-wide, so
+ * every unflattener with the same configuration shares a single {@link KeyGrammar}.
+ *
+ * @author Wei-Ming Wu
+ *
+ */
+final class KeyGrammar {
+
+  private static final ConcurrentMap<Long, KeyGrammar> cache = new ConcurrentHashMap<>();
+
+  /**
+   * Returns the cached {@link KeyGrammar} of the given configuration.
+   *
+   * @param flattenMode a {@link FlattenMode}
+   * @param separator the separator within a key
+   * @param leftBracket the left bracket within a key
+   * @param rightBracket the right bracket within a key
+   * @return a {@link KeyGrammar}
+   */
+  static KeyGrammar of(FlattenMode flattenMode, char separator, char leftBracket,
+      char rightBracket) {
+    long id = (long) flattenMode.ordinal() << 48 | (long) separator << 32
+        | (long) leftBracket << 16 | rightBracket;
+    KeyGrammar grammar = cache.get(id);
+    if (grammar == null) {
+      grammar = cache.computeIfAbsent(id,
+          k -> new KeyGrammar(flattenMode, separator, leftBracket, rightBracket));
+    }
+    return grammar;
+  }
+
+  /**
+   * Checks if the given character can't be a separator. Same as matching {@code ["\s]}.
+   *
+   * @param c any character
+   * @return true if the character is illegal as a separator
+   */
+  static boolean isIllegalSeparator(char c) {
+    return c == '"' || isWhitespace(c);
+  }
+
+  // Same as \s in java.util.regex
+  private static boolean isWhitespace(char c) {
+    return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+  }
+
+  private final FlattenMode flattenMode;
+  private final char separator;
+  private final char leftBracket;
+  private final char rightBracket;
+
+  private KeyGrammar(FlattenMode flattenMode, char separator, char leftBracket,
+      char rightBracket) {
+    this.flattenMode = flattenMode;
+    this.separator = separator;
+    this.leftBracket = leftBracket;
+    this.rightBracket = rightBracket;
+  }
+
+  /**
+   * Checks if the given character can't be a bracket with the separator of this grammar. Same as
+   * matching {@code ["\s<separator>]}.
+   *
+   * @param c any character
+   * @return true if the character is illegal as a bracket
+   */
+  boolean isIllegalBracket(char c) {
+    return c == separator || isIllegalSeparator(c);
+  }
+
+  /**
+   * Creates a new {@link FlattenedKeyTokenizer} of this grammar for a single traversal.
+   *
+   * @return a {@link FlattenedKeyTokenizer}
+   */
+  FlattenedKeyTokenizer newTokenizer() {
+    return new FlattenedKeyTokenizer(flattenMode, separator, leftBracket, rightBracket);
+  }
+
+  @Override
+  public String toString() {
+    return "KeyGrammar{flattenMode=" + flattenMode + ", separator=" + separator + ", leftBracket="
+        + leftBracket + ", rightBracket=" + rightBracket + "}";
+  }
+
+}
@@ -0,0 +1,333 @@
+/*
+ *
+ * Copyright 2026 Wei-Ming Wu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package com.github.wnameless.json.unflattener;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.function.Function;
+import com.github.wnameless.json.base.JsonValueBase;
+import com.github.wnameless.json.base.JsonValueUtils;
+import com.github.wnameless.json.flattener.KeyTransformer;
+
+/**
+ *
+ * {@link MapUnflattener} unflattens a flattened Map or a parsed flattened JSON straight into nested
+ * Java Maps and Lists, without writing any JSON and parsing it back.<br>
+ * <br>
+ * It follows the same steps as {@link JsonUnflattener#unflatten()} and its values are converted to
+ * the same Java types as {@link JsonUnflattener#unflattenAsMap()} returns after a round trip
+ * through the default JSON parser. Only Maps whose values are all
+ * {@link #isJsonCompatible(Object) JSON compatible} can be unflattened by it.
+ *
+ * @author Wei-Ming Wu
+ *
+ */
+final class MapUnflattener {
+
+  private final KeyGrammar grammar;
+  private final KeyTransformer keyTrans;
+  private final ArrayGuard arrayGuard;
+
+  MapUnflattener(KeyGrammar grammar, KeyTransformer keyTrans, ArrayGuard arrayGuard) {
+    this.grammar = grammar;
+    this.keyTrans = keyTrans;
+    this.arrayGuard = arrayGuard;
+  }
+
+  /**
+   * Checks if the given value can be written as JSON and read back without any loss other than the
+   * one of the default JSON parser, which reads every decimal number as a double.
+   *
+   * @param value any object
+   * @return true if the value is a String, Boolean, finite Number of a JDK type, null or a Map with
+   *         String keys or a Collection made of such values
+   */
+  static boolean isJsonCompatible(Object value) {
+    if (value == null || value instanceof String || value instanceof Boolean) return true;
+    if (value instanceof Number) return isJsonNumber((Number) value);
+    if (value instanceof Collection) {
+      for (Object element : (Collection<?>) value) {
+        if (!isJsonCompatible(element)) return false;
+      }
+      return true;
+    }
+    if (value instanceof Map) {
+      for (Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+        if (!(entry.getKey() instanceof String) || !isJsonCompatible(entry.getValue())) {
+          return false;
+        }
+      }
+      return true;
+    }
+    return false;
+  }
+
+  private static boolean isJsonNumber(Number number) {
+    if (number instanceof Integer || number instanceof Long || number instanceof Short
+        || number instanceof Byte || number instanceof BigInteger || number instanceof BigDecimal) {
+      return true;
+    }
+    if (number instanceof Double || number instanceof Float) {
+      double d = number.doubleValue();
+      return !Double.isNaN(d) && !Double.isInfinite(d);
+    }
+    return false;
+  }
+
+  /**
+   * Unflattens the given flattened Map.
+   *
+   * @param flattenedMap a flattened Map of {@link #isJsonCompatible(Object) JSON compatible} values
+   * @return a Map of nested objects or a List if the flattened keys start with an array index
+   */
+  Object unflatten(Map<String, ?> flattenedMap) {
+    return unflatten(flattenedMap.entrySet(), MapUnflattener::toJavaValue);
+  }
+
+  /**
+   * Unflattens the given flattened JSON value, whose values are converted into Java objects just
+   * like {@link JsonValueUtils#toObject(JsonValueBase)} does while its keys are walked once.
+   *
+   * @param flattened a flattened JSON object, a JSON array of KEEP_ARRAYS mode or any JSON value
+   * @return a Map of nested objects, a List or any other value converted into a Java object
+   */
+  Object unflatten(JsonValueBase<?> flattened) {
+    if (flattened.isObject()) {
+      return unflatten(flattened.asObject(), JsonValueUtils::toObject);
+    } else if (flattened.isArray()) {
+      return unflattenList(JsonValueUtils.toList(flattened.asArray()));
+    }
+    return JsonValueUtils.toObject(flattened);
+  }
+
+  private <V> Object unflatten(Iterable<? extends Entry<String, ? extends V>> flattenedEntries,
+      Function<? super V, Object> toJava) {
+    FlattenedKeyTokenizer keyParts = grammar.newTokenizer();
+    ResolvedKeyPath<Object> keyPath = new ResolvedKeyPath<>();
+    Object unflattened = null;
+    boolean isEmpty = true;
+
+    for (Entry<String, ? extends V> entry : flattenedEntries) {
+      isEmpty = false;
+      Object val = toJava.apply(entry.getValue());
+      Object currentVal = unflattened;
+      String objKey = null;
+      Integer aryIdx = null;
+
+      keyParts.reset(entry.getKey());
+      keyPath.start();
+      while (keyParts.next()) {
+        if (objKey != null ^ aryIdx != null) {
+          // The container of the previous key which holds the same key parts, if any
+          Object container = keyPath.resume(keyParts.isIndex());
+          if (keyParts.isIndex()) {
+            currentVal = container != null ? container
+                : findOrCreateList(currentVal, objKey, aryIdx);
+            objKey = null;
+            aryIdx = arrayGuard.checkIndex(keyParts.index(), entry.getKey());
+          } else { // JSON object
+            if (val instanceof List) { // KEEP_ARRAYS mode
+              val = unflattenList((List<?>) val);
+            }
+            currentVal = container != null ? container
+                : findOrCreateMap(currentVal, objKey, aryIdx);
+            objKey = extractKey(keyParts);
+            aryIdx = null;
+          }
+        }
+
+        if (objKey == null && aryIdx == null) {
+          if (keyParts.isIndex()) {
+            aryIdx = arrayGuard.checkIndex(keyParts.index(), entry.getKey());
+            if (currentVal == null) currentVal = new ArrayList<Object>();
+          } else { // JSON object
+            objKey = extractKey(keyParts);
+            if (currentVal == null) currentVal = new LinkedHashMap<String, Object>();
+          }
+        }
+
+        keyPath.add(currentVal, objKey, aryIdx);
+        if (unflattened == null) unflattened = currentVal;
+      }
+
+      setUnflattenedValue(currentVal, objKey, aryIdx, val);
+    }
+
+    return isEmpty ? new LinkedHashMap<String, Object>() : unflattened;
+  }
+
+  private String extractKey(FlattenedKeyTokenizer keyParts) {
+    String keyPart = keyParts.key();
+    return keyTrans != null ? keyTrans.transform(keyPart) : keyPart;
+  }
+
+  private Object unflattenValue(Object value) {
+    if (value instanceof List) return unflattenList((List<?>) value);
+    if (value instanceof Map) {
+      // The values within a List are converted into Java objects already
+      @SuppressWarnings("unchecked")
+      Map<String, Object> map = (Map<String, Object>) value;
+      return unflatten(map.entrySet(), Function.identity());
+    }
+    return value;
+  }
+
+  private List<Object> unflattenList(List<?> list) {
+    List<Object> unflattenList = new ArrayList<>(list.size());
+    for (Object value : list) {
+      unflattenList.add(unflattenValue(value));
+    }
+    return unflattenList;
+  }
+
+  @SuppressWarnings("unchecked")
+  private List<Object> findOrCreateList(Object currentVal, String objKey, Integer aryIdx) {
+    if (objKey != null) {
+      Map<String, Object> map = (Map<String, Object>) currentVal;
+
+      if (!map.containsKey(objKey)) {
+        List<Object> list = new ArrayList<>();
+        map.put(objKey, list);
+
+        return list;
+      }
+
+      return asList(map.get(objKey));
+    } else { // aryIdx != null
+      List<Object> list = (List<Object>) currentVal;
+
+      if (list.size() <= aryIdx || list.get(aryIdx) == null) {
+        List<Object> ary = new ArrayList<>();
+        assureListSize(list, aryIdx);
+        list.set(aryIdx, ary);
+
+        return ary;
+      }
+
+      return asList(list.get(aryIdx));
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private Map<String, Object> findOrCreateMap(Object currentVal, String objKey, Integer aryIdx) {
+    if (objKey != null) {
+      Map<String, Object> map = (Map<String, Object>) currentVal;
+
+      if (!map.containsKey(objKey)) {
+        Map<String, Object> obj = new LinkedHashMap<>();
+        map.put(objKey, obj);
+
+        return obj;
+      }
+
+      return asMap(map.get(objKey));
+    } else { // aryIdx != null
+      List<Object> list = (List<Object>) currentVal;
+
+      if (list.size() <= aryIdx || list.get(aryIdx) == null) {
+        Map<String, Object> obj = new LinkedHashMap<>();
+        assureListSize(list, aryIdx);
+        list.set(aryIdx, obj);
+
+        return obj;
+      }
+
+      return asMap(list.get(aryIdx));
+    }
+  }
+
+  // A JSON null or any other value where a container is expected can't be cast, just like a
+  // JsonValueCore
+  @SuppressWarnings("unchecked")
+  private static List<Object> asList(Object value) {
+    if (!(value instanceof List)) {
+      throw new ClassCastException("Cannot cast " + value + " to a JSON array");
+    }
+    return (List<Object>) value;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Map<String, Object> asMap(Object value) {
+    if (!(value instanceof Map)) {
+      throw new ClassCastException("Cannot cast " + value + " to a JSON object");
+    }
+    return (Map<String, Object>) value;
+  }
+
+  @SuppressWarnings("unchecked")
+  private void setUnflattenedValue(Object currentVal, String objKey, Integer aryIdx, Object val) {
+    if (objKey != null) {
+      if (val instanceof List) {
+        val = unflattenList((List<?>) val);
+      }
+      ((Map<String, Object>) currentVal).put(objKey, val);
+    } else { // aryIdx != null
+      List<Object> list = (List<Object>) currentVal;
+      assureListSize(list, aryIdx);
+      list.set(aryIdx, val);
+    }
+  }
+
+  private void assureListSize(List<Object> list, Integer index) {
+    arrayGuard.checkPadding(list.size(), index);
+    while (index >= list.size()) {
+      list.add(null);
+    }
+  }
+
+  /**
+   * Copies the given value into LinkedHashMaps and ArrayLists and converts its numbers into the
+   * types which a JSON number is read as.
+   */
+  private static Object toJavaValue(Object value) {
+    if (value instanceof Number) return toJavaNumber((Number) value);
+    if (value instanceof Collection) {
+      Collection<?> coll = (Collection<?>) value;
+      List<Object> list = new ArrayList<>(coll.size());
+      for (Object element : coll) {
+        list.add(toJavaValue(element));
+      }
+      return list;
+    }
+    if (value instanceof Map) {
+      Map<String, Object> map = new LinkedHashMap<>();
+      for (Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+        map.put((String) entry.getKey(), toJavaValue(entry.getValue()));
+      }
+      return map;
+    }
+    return value;
+  }
+
+  private static Number toJavaNumber(Number number) {
+    String text = number.toString();
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (c == '.' || c == 'e' || c == 'E') {
+        // Decimal numbers are read as doubles
+        return JsonValueUtils.toJavaNumber(BigDecimal.valueOf(Double.parseDouble(text)));
+      }
+    }
+    return JsonValueUtils.toJavaNumber(new BigDecimal(text));
+  }
+
+}
@@ -0,0 +1,95 @@
+/*
+ *
+ * Copyright 2026 Wei-Ming Wu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package com.github.wnameless.json.unflattener;
+
+import java.util.Arrays;
+
+/**
+ *
+ * {@link ResolvedKeyPath} remembers the key parts of the previous flattened key and the container
+ * which holds each of them, so the next key resumes from the containers of its longest common
+ * prefix with the previous key instead of looking them up from the root again. Consecutive keys
+ * such as {@code a.b.c.d1} and {@code a.b.c.d2} then only resolve their last key parts.<br>
+ * <br>
+ * Once the containers of a key are resolved, only its value is set into the deepest container, so
+ * every remembered container is still in place when the next key resumes from it.
+ *
+ * @param <C> the type of containers
+ *
+ * @author Wei-Ming Wu
+ *
+ */
+final class ResolvedKeyPath<C> {
+
+  private Object[] containers = new Object[8];
+  private String[] keys = new String[8];
+  private int[] indexes = new int[8];
+  // The number of key parts of the previous key
+  private int length = 0;
+  // The number of key parts of the current key which have been added
+  private int depth = 0;
+  // The number of leading key parts of the current key which equal to the ones of the previous key
+  private int matched = 0;
+
+  /**
+   * Ends the previous key and starts a new key.
+   */
+  void start() {
+    length = depth;
+    depth = 0;
+    matched = 0;
+  }
+
+  /**
+   * Returns the container of the previous key which holds the next key part of the current key, if
+   * all key parts before it equal to the ones of the previous key and the container is of the
+   * same kind.
+   *
+   * @param isIndex whether the next key part is an array index, which needs an array container
+   * @return the container of the previous key or null if it can't be reused
+   */
+  @SuppressWarnings("unchecked")
+  C resume(boolean isIndex) {
+    if (matched < depth || depth >= length || (keys[depth] == null) != isIndex) return null;
+    return (C) containers[depth];
+  }
+
+  /**
+   * Adds the next key part of the current key with the container which holds it.
+   *
+   * @param container the container which holds the key part
+   * @param objKey the object key or null if the key part is an array index
+   * @param aryIdx the array index or null if the key part is an object key
+   */
+  void add(C container, String objKey, Integer aryIdx) {
+    if (depth == containers.length) {
+      containers = Arrays.copyOf(containers, depth * 2);
+      keys = Arrays.copyOf(keys, depth * 2);
+      indexes = Arrays.copyOf(indexes, depth * 2);
+    }
+
+    if (matched == depth && depth < length && containers[depth] == container
+        && (objKey != null ? objKey.equals(keys[depth])
+            : keys[depth] == null && indexes[depth] == aryIdx)) {
+      matched++;
+    }
+    containers[depth] = container;
+    keys[depth] = objKey;
+    indexes[depth] = objKey != null ? -1 : aryIdx;
+    depth++;
+  }
+
+}
@@ -0,0 +1,502 @@
+/*
+ *
+ * Copyright 2026 Wei-Ming Wu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package com.github.wnameless.json.unflattener;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import com.github.wnameless.json.flattener.FlattenMode;
+import com.github.wnameless.json.flattener.JsonFlattener;
+import com.github.wnameless.json.flattener.KeyTransformer;
+import com.github.wnameless.json.flattener.PrettyJsonWriter;
+import com.github.wnameless.json.flattener.PrintMode;
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.core.JsonParser;
+import tools.jackson.core.JsonToken;
+import tools.jackson.core.StreamWriteFeature;
+import tools.jackson.core.exc.StreamReadException;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ *
+ * {@link StreamingJsonUnflattener} unflattens a flattened JSON object straight from the token
+ * stream of a Jackson {@link JsonParser} into a {@link Writer}. The flattened keys are expected in
+ * the order {@link JsonFlattener} emits them, where all keys of a subtree are next to each other.
+ * A subtree is written and closed as soon as a key outside of it is read, so only the containers
+ * on the path of the current key are held in memory.<br>
+ * <br>
+ * Every open object, the root object included, remembers all its member names written so far to
+ * detect a key which reopens one of them. The heap therefore still grows with the number of
+ * members of the widest open object, which is usually the root object, but not with the depth or
+ * the size of the subtrees which have been written.<br>
+ * <br>
+ * A key which would reopen a subtree that has been written already, such as {@code a.c} after
+ * {@code a.b.c} and {@code d}, fails with an IllegalArgumentException. Such input can still be
+ * unflattened by {@link JsonUnflattener}, which holds the whole document in memory.<br>
+ * <br>
+ * The unflattened JSON of key-ordered input is the same as the one produced by
+ * {@link JsonUnflattener} with the same configuration, except for the arrays kept by
+ * {@link FlattenMode#KEEP_ARRAYS} under a key of more than one key part which ends with an object
+ * key, such as {@code q.k}. {@link JsonUnflattener} unflattens such an array twice, so an escaped
+ * key within it, such as {@code ["x[0]"]}, is split again, while this class unflattens it once and
+ * keeps {@code x[0]} as a single key. Since a flattened JSON which is not an object has no keys,
+ * it is unflattened by {@link JsonUnflattener} as a whole. A {@link StreamingJsonUnflattener}
+ * holds only its configuration, so one configured instance can unflatten any number of JSON
+ * inputs.
+ *
+ * @author Wei-Ming Wu
+ *
+ */
+public final class StreamingJsonUnflattener {
+
+  private static final JsonMapper mapper =
+      JsonMapper.builder().disable(StreamWriteFeature.AUTO_CLOSE_TARGET)
+          .disable(StreamWriteFeature.FLUSH_PASSED_TO_STREAM).build();
+
+  private FlattenMode flattenMode = FlattenMode.NORMAL;
+  private Character separator = '.';
+  private Character leftBracket = '[';
+  private Character rightBracket = ']';
+  private PrintMode printMode = PrintMode.MINIMAL;
+  private String indent = PrettyJsonWriter.DEFAULT_INDENT;
+  private KeyTransformer keyTrans = null;
+  private int maxArrayIndex = Integer.MAX_VALUE;
+  private long maxArrayPadding = Long.MAX_VALUE;
+  private KeyGrammar grammar = KeyGrammar.of(flattenMode, separator, leftBracket, rightBracket);
+
+  /**
+   * Creates a {@link StreamingJsonUnflattener} with the default configuration.
+   */
+  public StreamingJsonUnflattener() {}
+
+  /**
+   * A fluent setter to setup a mode of the {@link StreamingJsonUnflattener}.
+   *
+   * @param flattenMode a {@link FlattenMode}
+   * @return this {@link StreamingJsonUnflattener}
+   */
+  public StreamingJsonUnflattener withFlattenMode(FlattenMode flattenMode) {
+    if (flattenMode == null) throw new NullPointerException();
+    this.flattenMode = flattenMode;
+    updateGrammar();
+    return this;
+  }
+
+  /**
+   * A fluent setter to setup the separator within a key in the flattened JSON. The default
+   * separator is a dot(.).
+   *
+   * @param separator any character
+   * @return this {@link StreamingJsonUnflattener}
+   */
+  public StreamingJsonUnflattener withSeparator(char separator) {
+    String separatorStr = String.valueOf(separator);
+    isTrue(!KeyGrammar.isIllegalSeparator(separator), "Separator contains illegal character(%s)",
+        separatorStr);
+    isTrue(!leftBracket.equals(separator) && !rightBracket.equals(separator),
+        "Separator(%s) is already used in brackets", separatorStr);
+
+    this.separator = separator;
+    updateGrammar();
+    return this;
+  }
+
+  /**
+   * A fluent setter to setup the left and right brackets within a key in the flattened JSON. The
+   * default left and right brackets are left square bracket([) and right square bracket(]).
+   *
+   * @param leftBracket any character
+   * @param rightBracket any character
+   * @return this {@link StreamingJsonUnflattener}
+   */
+  public StreamingJsonUnflattener withLeftAndRightBrackets(char leftBracket, char rightBracket) {
+    isTrue(leftBracket != rightBracket, "Both brackets cannot be the same");
+    isTrue(!grammar.isIllegalBracket(leftBracket), "Left bracket contains illegal character(%s)",
+        String.valueOf(leftBracket));
+    isTrue(!grammar.isIllegalBracket(rightBracket), "Right bracket contains illegal character(%s)",
+        String.valueOf(rightBracket));
+
+    this.leftBracket = leftBracket;
+    this.rightBracket = rightBracket;
+    updateGrammar();
+    return this;
+  }
+
+  private void updateGrammar() {
+    grammar = KeyGrammar.of(flattenMode, separator, leftBracket, rightBracket);
+  }
+
+  /**
+   * A fluent setter to setup a print mode of the {@link StreamingJsonUnflattener}. The default
+   * print mode is minimal.
+   *
+   * @param printMode a {@link PrintMode}
+   * @return this {@link StreamingJsonUnflattener}
+   */
+  public StreamingJsonUnflattener withPrintMode(PrintMode printMode) {
+    if (printMode == null) throw new NullPointerException();
+    this.printMode = printMode;
+    return this;
+  }
+
+  /**
+   * A fluent setter to setup the indent of {@link PrintMode#PRETTY} of the
+   * {@link StreamingJsonUnflattener}. The default indent is 2 spaces.
+   *
+   * @param indent an indent which consists of spaces and tabs only
+   * @return this {@link StreamingJsonUnflattener}
+   */
+  public StreamingJsonUnflattener withIndent(String indent) {
+    PrettyJsonWriter.validateIndent(indent);
+    this.indent = indent;
+    return this;
+  }
+
+  /**
+   * A fluent setter to setup a {@link KeyTransformer} of the {@link StreamingJsonUnflattener}.
+   *
+   * @param keyTrans a {@link KeyTransformer}
+   * @return this {@link StreamingJsonUnflattener}
+   */
+  public StreamingJsonUnflattener withKeyTransformer(KeyTransformer keyTrans) {
+    this.keyTrans = keyTrans;
+    return this;
+  }
+
+  /**
+   * A fluent setter to setup the maximum array index of the flattened keys.
+   *
+   * @param maxArrayIndex the maximum array index
+   * @return this {@link StreamingJsonUnflattener}
+   * @see JsonUnflattener#withMaxArrayIndex(int)
+   */
+  public StreamingJsonUnflattener withMaxArrayIndex(int maxArrayIndex) {
+    isTrue(maxArrayIndex >= 0, "Maximum array index(%s) cannot be negative", maxArrayIndex);
+    this.maxArrayIndex = maxArrayIndex;
+    return this;
+  }
+
+  /**
+   * A fluent setter to setup the maximum number of nulls which fill the gaps of all unflattened
+   * arrays.
+   *
+   * @param maxArrayPadding the maximum number of nulls filling the gaps of arrays
+   * @return this {@link StreamingJsonUnflattener}
+   * @see JsonUnflattener#withMaxArrayPadding(long)
+   */
+  public StreamingJsonUnflattener withMaxArrayPadding(long maxArrayPadding) {
+    isTrue(maxArrayPadding >= 0, "Maximum array padding(%s) cannot be negative", maxArrayPadding);
+    this.maxArrayPadding = maxArrayPadding;
+    return this;
+  }
+
+  /**
+   * Returns a JSON string of nested objects by the given flattened JSON string.
+   *
+   * @param json a flattened JSON string
+   * @return a JSON string of nested objects
+   * @throws IllegalArgumentException if a key reopens a subtree which has been written already
+   */
+  public String unflatten(String json) {
+    StringWriter sw = new StringWriter();
+    try (JsonParser parser = mapper.createParser(json)) {
+      unflatten(parser, sw);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return sw.toString();
+  }
+
+  /**
+   * Writes the JSON of nested objects of the given flattened JSON reader into the given writer.
+   * Every subtree is written as soon as it is complete, the writer is neither flushed nor closed.
+   *
+   * @param jsonReader a flattened JSON reader
+   * @param writer the {@link Writer} of the JSON of nested objects
+   * @throws IOException if the jsonReader cannot be read or the writer cannot be written
+   * @throws IllegalArgumentException if a key reopens a subtree which has been written already
+   */
+  public void unflatten(Reader jsonReader, Writer writer) throws IOException {
+    if (writer == null) throw new NullPointerException();
+    try (JsonParser parser = mapper.createParser(jsonReader)) {
+      unflatten(parser, writer);
+    }
+  }
+
+  /**
+   * Writes the JSON of nested objects of the given flattened JSON input stream into the given
+   * writer. The encoding of the input stream is auto-detected. Every subtree is written as soon as
+   * it is complete, the writer is neither flushed nor closed.
+   *
+   * @param jsonStream a flattened JSON input stream
+   * @param writer the {@link Writer} of the JSON of nested objects
+   * @throws IOException if the jsonStream cannot be read or the writer cannot be written
+   * @throws IllegalArgumentException if a key reopens a subtree which has been written already
+   */
+  public void unflatten(InputStream jsonStream, Writer writer) throws IOException {
+    if (writer == null) throw new NullPointerException();
+    try (JsonParser parser = mapper.createParser(jsonStream)) {
+      unflatten(parser, writer);
+    }
+  }
+
+  /**
+   * Writes the JSON of nested objects of the given flattened JSON input stream into the given
+   * {@link OutputStream} in UTF-8. The {@link OutputStream} is flushed but not closed.
+   *
+   * @param jsonStream a flattened JSON input stream
+   * @param out the {@link OutputStream} of the JSON of nested objects
+   * @throws IOException if the jsonStream cannot be read or the out cannot be written
+   * @throws IllegalArgumentException if a key reopens a subtree which has been written already
+   */
+  public void unflatten(InputStream jsonStream, OutputStream out) throws IOException {
+    if (out == null) throw new NullPointerException();
+    Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    unflatten(jsonStream, writer);
+    writer.flush();
+  }
+
+  private void unflatten(JsonParser parser, Writer writer) throws IOException {
+    JsonToken token = parser.nextToken();
+    if (token == null) throw new StreamReadException(parser, "No content to unflatten");
+
+    Writer out = printMode == PrintMode.PRETTY ? new PrettyJsonWriter(writer, indent) : writer;
+    if (token == JsonToken.START_OBJECT) {
+      try (JsonGenerator generator = mapper.createGenerator(out)) {
+        new Unflattening(parser, generator).run();
+      }
+    } else {
+      // Only a flattened object has keys, any other JSON value is unflattened as a whole
+      JsonNode value = parser.readValueAsTree();
+      out.write(newJsonUnflattener(value.toString()).unflatten());
+    }
+
+    if (parser.nextToken() != null) {
+      throw new StreamReadException(parser,
+          "Trailing token (" + parser.currentToken() + ") found after the JSON value");
+    }
+  }
+
+  private JsonUnflattener newJsonUnflattener(String json) {
+    return new JsonUnflattener(json).withFlattenMode(flattenMode).withSeparator(separator)
+        .withLeftAndRightBrackets(leftBracket, rightBracket).withKeyTransformer(keyTrans)
+        .withMaxArrayIndex(maxArrayIndex).withMaxArrayPadding(maxArrayPadding);
+  }
+
+  /**
+   * {@link Frame} is an open object or array which holds a key part of the current key.
+   */
+  private static final class Frame {
+
+    private final boolean isArray;
+    // The member names written into an object
+    private final Set<String> names;
+    // The number of elements written into an array
+    private int size = 0;
+    // The key part of the child container which is still open
+    private String openKey;
+    private int openIndex;
+
+    private Frame(boolean isArray) {
+      this.isArray = isArray;
+      names = isArray ? null : new HashSet<>();
+    }
+
+  }
+
+  /**
+   * {@link Unflattening} reads the flattened key/value pairs one by one and keeps the containers
+   * of the common prefix of the previous key and the current key open, all other containers of the
+   * previous key are closed since no key after it can be put into them.
+   */
+  private final class Unflattening {
+
+    private final JsonParser parser;
+    private final JsonGenerator generator;
+    private final FlattenedKeyTokenizer keyParts = grammar.newTokenizer();
+    private final ArrayGuard arrayGuard = new ArrayGuard(maxArrayIndex, maxArrayPadding);
+
+    // An object key or null for an array index of every key part of the current key
+    private String[] partKeys = new String[16];
+    private int[] partIndexes = new int[16];
+    private int parts = 0;
+
+    // The open containers from the root, the one of depth i holds the key part i
+    private Frame[] frames = new Frame[16];
+    private int depth = 0;
+
+    private Unflattening(JsonParser parser, JsonGenerator generator) {
+      this.parser = parser;
+      this.generator = generator;
+    }
+
+    private void run() {
+      while (parser.nextToken() == JsonToken.PROPERTY_NAME) {
+        String key = parser.currentName();
+        parser.nextToken();
+        tokenize(key);
+        enter(key);
+        writeValue();
+      }
+
+      if (depth == 0) { // An empty flattened object
+        generator.writeStartObject();
+        generator.writeEndObject();
+      }
+      while (depth > 0) close();
+    }
+
+    private void tokenize(String key) {
+      parts = 0;
+      keyParts.reset(key);
+      while (keyParts.next()) {
+        if (parts == partKeys.length) {
+          partKeys = Arrays.copyOf(partKeys, parts * 2);
+          partIndexes = Arrays.copyOf(partIndexes, parts * 2);
+        }
+
+        if (keyParts.isIndex()) {
+          partKeys[parts] = null;
+          partIndexes[parts] = arrayGuard.checkIndex(keyParts.index(), key);
+        } else {
+          String keyPart = keyParts.key();
+          partKeys[parts] = keyTrans != null ? keyTrans.transform(keyPart) : keyPart;
+        }
+        parts++;
+      }
+      if (parts == 0) throw new IllegalArgumentException("Key(" + key + ") has no key part");
+    }
+
+    private boolean isIndex(int part) {
+      return partKeys[part] == null;
+    }
+
+    // Opens the containers of the current key and positions the generator at its value
+    private void enter(String key) {
+      if (depth == 0) {
+        open(isIndex(0));
+      } else if (frames[0].isArray != isIndex(0)) {
+        throw conflict(key, 0);
+      }
+
+      // Stays in the open containers of the common prefix with the previous key
+      int level = 0;
+      while (level + 1 < depth && level + 1 < parts && isOpenChild(level)) {
+        if (frames[level + 1].isArray != isIndex(level + 1)) throw conflict(key, level + 1);
+        level++;
+      }
+      while (depth > level + 1) close();
+
+      for (int part = level; part < parts - 1; part++) {
+        slot(key, part);
+        open(isIndex(part + 1));
+      }
+      slot(key, parts - 1);
+    }
+
+    private boolean isOpenChild(int part) {
+      Frame frame = frames[part];
+      return frame.isArray ? frame.openIndex == partIndexes[part]
+          : frame.openKey.equals(partKeys[part]);
+    }
+
+    // Writes the member name or the array padding of the given key part
+    private void slot(String key, int part) {
+      Frame frame = frames[part];
+      if (frame.isArray) {
+        int index = partIndexes[part];
+        if (index < frame.size) throw outOfOrder(key, part);
+        arrayGuard.checkPadding(frame.size, index);
+        for (int i = frame.size; i < index; i++) {
+          generator.writeNull();
+        }
+        frame.size = index + 1;
+        frame.openIndex = index;
+      } else {
+        if (!frame.names.add(partKeys[part])) throw outOfOrder(key, part);
+        generator.writeName(partKeys[part]);
+        frame.openKey = partKeys[part];
+      }
+    }
+
+    private void open(boolean isArray) {
+      if (depth == frames.length) frames = Arrays.copyOf(frames, depth * 2);
+      frames[depth++] = new Frame(isArray);
+      if (isArray) {
+        generator.writeStartArray();
+      } else {
+        generator.writeStartObject();
+      }
+    }
+
+    private void close() {
+      if (frames[--depth].isArray) {
+        generator.writeEndArray();
+      } else {
+        generator.writeEndObject();
+      }
+      frames[depth] = null;
+    }
+
+    private void writeValue() {
+      JsonToken token = parser.currentToken();
+      if (token == JsonToken.START_ARRAY && hasKeyPartAfterRoot()) {
+        // An array kept by KEEP_ARRAYS mode, whose objects are flattened on their own
+        JsonNode array = parser.readValueAsTree();
+        generator.writeRawValue(newJsonUnflattener(array.toString()).unflatten());
+      } else {
+        generator.copyCurrentStructure(parser);
+      }
+    }
+
+    // Same as JsonUnflattener, which only unflattens the arrays of the keys with an object key
+    // other than the first key part
+    private boolean hasKeyPartAfterRoot() {
+      for (int part = parts == 1 ? 0 : 1; part < parts; part++) {
+        if (!isIndex(part)) return true;
+      }
+      return false;
+    }
+
+    private IllegalArgumentException outOfOrder(String key, int part) {
+      return new IllegalArgumentException("Key(" + key + ") is out of order, the subtree of its "
+          + "key part(" + keyPart(part) + ") has been written already");
+    }
+
+    private IllegalArgumentException conflict(String key, int part) {
+      return new IllegalArgumentException("Key(" + key + ") conflicts with a previous key at its "
+          + "key part(" + keyPart(part) + ")");
+    }
+
+    private String keyPart(int part) {
+      return isIndex(part) ? "[" + partIndexes[part] + "]" : partKeys[part];
+    }
+
+  }
+
+}
@@ -0,0 +1,82 @@
+/*
+ *
+ * Copyright 2026 Wei-Ming Wu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package com.github.wnameless.json.flattener;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+public class FlattenedKeyBuilderTest {
+
+  private FlattenedKeyBuilder newBuilder(FlattenMode mode) {
+    return new FlattenedKeyBuilder(mode, '.', '[', ']', null, false);
+  }
+
+  @Test
+  public void testPushAndPop() {
+    FlattenedKeyBuilder keys = newBuilder(FlattenMode.NORMAL);
+    assertEquals(JsonFlattener.ROOT, keys.toString());
+
+    keys.pushKey("a");
+    keys.pushIndex(0);
+    keys.pushKey("b.c");
+    assertEquals(3, keys.depth());
+    assertEquals("a[0][\"b.c\"]", keys.toString());
+
+    keys.pop();
+    keys.pushKey("");
+    assertEquals("a[0][\"\"]", keys.toString());
+
+    keys.pop();
+    keys.pop();
+    keys.pushIndex(12);
+    assertEquals("a[12]", keys.toString());
+
+    keys.pop();
+    keys.pop();
+    assertEquals(0, keys.depth());
+    assertEquals(JsonFlattener.ROOT, keys.toString());
+  }
+
+  @Test
+  public void testIndexTokens() {
+    FlattenedKeyBuilder keys = newBuilder(FlattenMode.NORMAL);
+    for (int i = 0; i < 3000; i += 7) {
+      keys.pushIndex(i);
+      assertEquals("[" + i + "]", keys.toString());
+      keys.pop();
+    }
+
+    keys = newBuilder(FlattenMode.MONGODB);
+    keys.pushKey("a");
+    for (int i = 3000; i >= 0; i -= 7) {
+      keys.pushIndex(i);
+      assertEquals("a." + i, keys.toString());
+      keys.pop();
+    }
+  }
+
+  @Test
+  public void testMongodbKeyWithSeparator() {
+    FlattenedKeyBuilder keys = newBuilder(FlattenMode.MONGODB);
+    try {
+      keys.pushKey("a.b");
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("Key cannot contain separator(.) in FlattenMode.MONGODB", e.getMessage());
+    }
+  }
+
+}
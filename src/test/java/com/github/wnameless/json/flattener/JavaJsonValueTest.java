@@ -0,0 +1,123 @@
+/*
+ *
+ * Copyright 2026 Wei-Ming Wu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package com.github.wnameless.json.flattener;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import com.github.wnameless.json.unflattener.JsonUnflattener;
+import tools.jackson.databind.json.JsonMapper;
+
+public class JavaJsonValueTest {
+
+  public static class Item {
+
+    private final String sku;
+    private final int[] sizes;
+
+    public Item(String sku, int... sizes) {
+      this.sku = sku;
+      this.sizes = sizes;
+    }
+
+    public String getSku() {
+      return sku;
+    }
+
+    public int[] getSizes() {
+      return sizes;
+    }
+
+  }
+
+  private final JsonMapper mapper = new JsonMapper();
+
+  private Map<String, Object> newGraph() {
+    Map<String, Object> map = new LinkedHashMap<>();
+    map.put("int", 1);
+    map.put("long", 3000000000L);
+    map.put("smallLong", 7L);
+    map.put("short", (short) 3);
+    map.put("double", 2.5);
+    map.put("wholeDouble", 2.0);
+    map.put("float", 1.1f);
+    map.put("bigInteger", new BigInteger("12345678901234567890"));
+    map.put("bigDecimal", new BigDecimal("1.50"));
+    map.put("string", "a\"b");
+    map.put("builder", new StringBuilder("sb"));
+    map.put("char", 'c');
+    map.put("enum", FlattenMode.MONGODB);
+    map.put("bool", true);
+    map.put("null", null);
+    map.put("emptyMap", new LinkedHashMap<>());
+    map.put("emptyList", new ArrayList<>());
+    map.put("list", Arrays.asList(1, "x", Arrays.asList(2, 3), Collections.singletonMap("k", "v")));
+    map.put("set", new LinkedHashSet<>(Arrays.asList("s1", "s2")));
+    map.put("objects", new Object[] {1, null, new int[] {4, 5}});
+    map.put("longs", new long[] {6L, 3000000000L});
+    map.put("chars", new char[] {'h', 'i'});
+    map.put("bytes", new byte[] {1, 2, 3});
+    map.put("pojo", new Item("sku-1", 38, 39));
+    map.put("pojos", Arrays.asList(new Item("sku-2"), new Item("sku-3", 40)));
+    map.put("a.b", Collections.singletonMap(1, "intKey"));
+    return map;
+  }
+
+  @Test
+  public void testSameAsParsedJson() {
+    Map<String, Object> graph = newGraph();
+    String json = mapper.writeValueAsString(graph);
+
+    for (FlattenMode mode : FlattenMode.values()) {
+      if (mode == FlattenMode.MONGODB) continue;
+
+      JsonFlattener expected = new JsonFlattener(json).withFlattenMode(mode);
+      JsonFlattener actual = new JsonFlattener(new JavaJsonValue(graph)).withFlattenMode(mode);
+      assertEquals(expected.flattenAsMap(), actual.flattenAsMap());
+      assertEquals(expected.flatten(), actual.flatten());
+    }
+
+    for (Object value : Arrays.asList(null, "abc", 123, 3000000000L, 1.5, true, new int[0],
+        Arrays.asList(Collections.emptyMap()), new Item("sku"))) {
+      assertEquals(new JsonFlattener(mapper.writeValueAsString(value)).flatten(),
+          new JsonFlattener(new JavaJsonValue(value)).flatten());
+    }
+  }
+
+  @Test
+  public void testRoundTrip() {
+    Map<String, Object> map = new LinkedHashMap<>();
+    map.put("a", Collections.singletonMap("b", Arrays.asList(1, 2.5, "c")));
+    map.put("d", null);
+
+    JavaJsonValue value = new JavaJsonValue(map);
+    assertEquals(mapper.writeValueAsString(map), value.toJson());
+    assertEquals(map, JsonUnflattener.unflattenAsMap(JsonFlattener.flattenAsMap(value)));
+    assertSame(map, value.getSource());
+    assertEquals(new JavaJsonValue(map), value);
+    assertEquals(2, value.asObject().size());
+    assertEquals(2.5, value.asObject().get("a").asObject().get("b").asArray().get(1).asDouble());
+  }
+
+}
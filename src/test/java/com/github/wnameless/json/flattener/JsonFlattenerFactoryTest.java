@@ -20,7 +20,20 @@ import java.io.IOException;
 import java.io.StringReader;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -91,6 +104,42 @@ public class JsonFlattenerFactoryTest {
         jf.flatten());
   }
 
+  @Test
+  public void testBuildWithJsonValueBaseInPlace() throws IOException {
+    String json = Resources.toString(Resources.getResource("test.json"), StandardCharsets.UTF_8);
+    String expected = new JsonFlattenerFactory(configurer).build(json).flatten();
+    assertEquals(expected,
+        jsonFlattenerFactory.build(new Jackson3JsonCore().parse(json)).flatten());
+    assertEquals(expected,
+        jsonFlattenerFactory.compile().flatten(new Jackson3JsonCore().parse(json)));
+
+    // Serializing the value for another JsonCore would iterate the Map once more
+    AtomicInteger iterations = new AtomicInteger();
+    Map<String, Object> map = new LinkedHashMap<String, Object>() {
+
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      public Set<Entry<String, Object>> entrySet() {
+        iterations.incrementAndGet();
+        return super.entrySet();
+      }
+
+    };
+    map.put("a", Arrays.asList(1, 2));
+    map.put("b", "c");
+
+    String flattened = new JsonFlattener(new JavaJsonValue(map)).flatten();
+    int inPlace = iterations.getAndSet(0);
+
+    assertEquals(flattened,
+        new JsonFlattenerFactory(jf -> {}, jsonCore).build(new JavaJsonValue(map)).flatten());
+    assertEquals(inPlace, iterations.getAndSet(0));
+    assertEquals(flattened,
+        new JsonFlattenerFactory(jf -> {}, jsonCore).compile().flatten(new JavaJsonValue(map)));
+    assertEquals(inPlace, iterations.getAndSet(0));
+  }
+
   @Test
   public void testBuildWithJsonReader() throws IOException {
     URL url = Resources.getResource("test2.json");
@@ -110,6 +159,141 @@ public class JsonFlattenerFactoryTest {
         jf.flatten());
   }
 
+  @Test
+  public void testCompile() throws IOException {
+    URL url = Resources.getResource("test.json");
+    String json = Resources.toString(url, StandardCharsets.UTF_8);
+
+    JsonFlattenerEngine engine = jsonFlattenerFactory.compile();
+    assertEquals(jsonFlattenerFactory.build(json).flatten(), engine.flatten(json));
+    assertEquals(jsonFlattenerFactory.build(json).flatten(),
+        engine.flatten(new StringReader(json)));
+    assertEquals(jsonFlattenerFactory.build(jsonCore.parse(json)).flatten(),
+        engine.flatten(jsonCore.parse(json)));
+    assertEquals(jsonFlattenerFactory.build(json).flattenAsMap(), engine.flattenAsMap(json));
+
+    configurer = jf -> jf.withFlattenMode(FlattenMode.KEEP_ARRAYS).withSeparator('_')
+        .withLeftAndRightBrackets('{', '}').withStringEscapePolicy(StringEscapePolicy.ALL)
+        .withKeyTransformer(key -> key.toUpperCase());
+    jsonFlattenerFactory = new JsonFlattenerFactory(configurer);
+    engine = jsonFlattenerFactory.compile();
+    assertEquals(jsonFlattenerFactory.build(json).flatten(), engine.flatten(json));
+    assertEquals(jsonFlattenerFactory.build(json).flattenAsMap(),
+        engine.flattenAsMap(new StringReader(json)));
+    assertEquals(jsonFlattenerFactory.build(jsonCore.parse(json)).flattenAsMap(),
+        engine.flattenAsMap(jsonCore.parse(json)));
+
+    Map<String, Object> flattenedMap = new LinkedHashMap<>();
+    engine.flattenTo(json, flattenedMap::put);
+    assertEquals(engine.flattenAsMap(json), flattenedMap);
+  }
+
+  @Test
+  public void testCompileRunsConfigurerOnce() {
+    AtomicInteger count = new AtomicInteger();
+    jsonFlattenerFactory = new JsonFlattenerFactory(jf -> {
+      count.incrementAndGet();
+      jf.withFlattenMode(FlattenMode.MONGODB);
+    });
+
+    JsonFlattenerEngine engine = jsonFlattenerFactory.compile();
+    for (int i = 0; i < 10; i++) {
+      assertEquals("{\"a.0\":" + i + "}", engine.flatten("{\"a\":[" + i + "]}"));
+    }
+    assertEquals(1, count.get());
+  }
+
+  @Test
+  public void testCompiledEngineIsThreadSafe() throws Exception {
+    URL url = Resources.getResource("test.json");
+    String json = Resources.toString(url, StandardCharsets.UTF_8);
+    JsonFlattenerEngine engine = new JsonFlattenerFactory(configurer).compile();
+    String expected = new JsonFlattenerFactory(configurer).build(json).flatten();
+
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<String>> results = new ArrayList<>();
+      for (int i = 0; i < 200; i++) {
+        results.add(executor.submit(() -> engine.flatten(json)));
+      }
+      for (Future<String> result : results) {
+        assertEquals(expected, result.get());
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testBatchFlatten() throws Exception {
+    URL url = Resources.getResource("test.json");
+    String json = Resources.toString(url, StandardCharsets.UTF_8);
+    List<String> jsons = new ArrayList<>();
+    for (int i = 0; i < 300; i++) {
+      switch (i % 4) {
+        case 0:
+          jsons.add(json);
+          break;
+        case 1:
+          jsons.add("[" + i + ",{\"a\":[" + i + "]}]");
+          break;
+        case 2:
+          jsons.add("{\"a.b\":" + i + "}");
+          break;
+        default:
+          jsons.add("{\"a\":");
+      }
+    }
+
+    JsonFlattenerEngine engine =
+        new JsonFlattenerFactory(jf -> jf.withFlattenMode(FlattenMode.MONGODB)).compile();
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      for (Executor exec : Arrays.asList(null, executor)) {
+        List<BatchResult<String>> results = engine.flattenAll(jsons, exec);
+        List<BatchResult<Map<String, Object>>> mapResults =
+            engine.flattenAsMapAll(jsons.stream()::iterator, exec);
+        assertEquals(jsons.size(), results.size());
+        assertEquals(jsons.size(), mapResults.size());
+
+        for (int i = 0; i < jsons.size(); i++) {
+          BatchResult<String> result = results.get(i);
+          BatchResult<Map<String, Object>> mapResult = mapResults.get(i);
+          assertEquals(i, result.getIndex());
+          assertEquals(i, mapResult.getIndex());
+          if (i % 4 < 2) {
+            assertTrue(result.isSuccess());
+            assertNull(result.getFailure());
+            assertEquals(engine.flatten(jsons.get(i)), result.getValue());
+            assertEquals(engine.flattenAsMap(jsons.get(i)), mapResult.getValue());
+          } else {
+            assertFalse(result.isSuccess());
+            assertFalse(mapResult.isSuccess());
+            assertThrows(IllegalStateException.class, () -> result.getValue());
+            if (i % 4 == 2) {
+              assertTrue(result.getFailure() instanceof IllegalArgumentException);
+            } else {
+              assertNotNull(result.getFailure());
+            }
+          }
+        }
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    // The chunks depend on the number of JSON strings only, not on the executor
+    AtomicInteger tasks = new AtomicInteger();
+    engine.flattenAll(Collections.nCopies(100, "{\"a\":[1]}"), task -> {
+      tasks.incrementAndGet();
+      task.run();
+    });
+    assertEquals(10, tasks.get());
+
+    assertEquals(Collections.emptyList(), engine.flattenAll(Collections.emptyList()));
+    assertThrows(NullPointerException.class, () -> engine.flattenAsMapAll(null));
+  }
+
   @Test
   public void testHashCode() {
     int result = 27;
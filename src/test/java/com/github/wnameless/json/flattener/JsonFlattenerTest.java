@@ -18,14 +18,25 @@ package com.github.wnameless.json.flattener;
 import static com.google.common.collect.Lists.newArrayList;
 import static com.google.common.collect.Maps.newHashMap;
 import static org.junit.jupiter.api.Assertions.*;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.StringReader;
+import java.io.StringWriter;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 import org.junit.jupiter.api.Test;
 import com.github.wnameless.json.base.Jackson3JsonCore;
 import com.github.wnameless.json.base.Jackson3JsonValue;
@@ -634,4 +645,366 @@ public class JsonFlattenerTest {
         new JsonFlattener(json).withFlattenMode(FlattenMode.MONGODB).withSeparator('-').flatten());
   }
 
+  @Test
+  public void testFlattenTo() throws IOException {
+    URL url = Resources.getResource("test.json");
+    String json = Resources.toString(url, StandardCharsets.UTF_8);
+
+    for (FlattenMode mode : FlattenMode.values()) {
+      Map<String, Object> expected =
+          new JsonFlattener(json).withFlattenMode(mode).flattenAsMap();
+
+      List<String> keys = newArrayList();
+      Map<String, Object> actual = new LinkedHashMap<>();
+      new JsonFlattener(json).withFlattenMode(mode).flattenTo((key, value) -> {
+        keys.add(key);
+        actual.put(key, value);
+      });
+      assertEquals(expected, actual);
+      assertEquals(newArrayList(expected.keySet()), keys);
+    }
+
+    JsonFlattener jf = new JsonFlattener("[1,{\"a\":[2]}]");
+    Map<String, Object> first = newHashMap();
+    jf.flattenTo(first::put);
+    Map<String, Object> second = newHashMap();
+    jf.flattenTo(second::put);
+    assertEquals(first, second);
+    assertEquals(ImmutableMap.of("[0]", 1, "[1].a[0]", 2), first);
+
+    assertThrows(NullPointerException.class, () -> jf.flattenTo(null));
+  }
+
+  @Test
+  public void testFlattenToAppendable() throws IOException {
+    URL url = Resources.getResource("test.json");
+    String json = Resources.toString(url, StandardCharsets.UTF_8);
+
+    for (FlattenMode mode : FlattenMode.values()) {
+      for (StringEscapePolicy policy : StringEscapePolicy.values()) {
+        for (PrintMode printMode : PrintMode.values()) {
+          JsonFlattener jf = new JsonFlattener(json).withFlattenMode(mode)
+              .withStringEscapePolicy(policy).withPrintMode(printMode);
+          String expected = jf.flatten();
+
+          StringBuilder sb = new StringBuilder();
+          jf.flatten(sb);
+          assertEquals(expected, sb.toString());
+
+          StringWriter sw = new StringWriter();
+          jf.flatten(sw);
+          assertEquals(expected, sw.toString());
+
+          ByteArrayOutputStream baos = new ByteArrayOutputStream();
+          jf.flatten(baos);
+          assertEquals(expected, baos.toString(StandardCharsets.UTF_8));
+        }
+      }
+    }
+
+    for (String src : newArrayList("{}", "[]", "123", "null", "\"abc\"", "[1,2]", "[[]]",
+        "{\"a\":{}}", "{\"a\":[]}")) {
+      for (FlattenMode mode : FlattenMode.values()) {
+        JsonFlattener jf = new JsonFlattener(src).withFlattenMode(mode);
+        StringBuilder sb = new StringBuilder();
+        jf.flatten(sb);
+        assertEquals(jf.flatten(), sb.toString(), src);
+      }
+    }
+
+    JsonFlattener jf = new JsonFlattener(json);
+    assertThrows(NullPointerException.class, () -> jf.flatten((Appendable) null));
+    assertThrows(NullPointerException.class, () -> jf.flatten((OutputStream) null));
+  }
+
+  @Test
+  public void testFlattenToAppendableWithDuplicateKeys() throws IOException {
+    JsonFlattener jf =
+        new JsonFlattener("{\"a.b\":1,\"a\":{\"b\":2}}").ignoreReservedCharacters();
+    StringBuilder sb = new StringBuilder();
+    jf.flatten(sb);
+    assertEquals("{\"a.b\":2}", sb.toString());
+
+    jf = new JsonFlattener("{\"-1\":1E-7,\"\":{\"-1\":false}}")
+        .withFlattenMode(FlattenMode.MONGODB);
+    sb = new StringBuilder();
+    jf.flatten(sb);
+    assertEquals(jf.flatten(), sb.toString());
+    assertEquals("{\"-1\":false}", sb.toString());
+
+    jf = new JsonFlattener("{\"a\":1,\"b\":2}").withKeyTransformer(key -> "k");
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    jf.flatten(baos);
+    assertEquals("{\"k\":2}", baos.toString(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testParallelFlatten() throws IOException {
+    URL url = Resources.getResource("test.json");
+    String test = Resources.toString(url, StandardCharsets.UTF_8);
+    StringBuilder sb = new StringBuilder("[");
+    for (int i = 0; i < 300; i++) {
+      if (i != 0) sb.append(',');
+      switch (i % 5) {
+        case 0:
+          sb.append(test);
+          break;
+        case 1:
+          sb.append("[1,[2,{}],[]]");
+          break;
+        case 2:
+          sb.append("{\"root\":{},\"a\":{\"b\":[" + i + "]}}");
+          break;
+        case 3:
+          sb.append("\"s" + i + "\"");
+          break;
+        default:
+          sb.append("{}");
+      }
+    }
+    String array = sb.append(']').toString();
+    String object = "{\"a\":" + array + ",\"b\":" + test + ",\"c\":1,\"d\":[1,2],\"e\":{}}";
+    List<String> jsons = newArrayList(array, object, "[1,2,3]", "[[1],[2]]", "{\"a.b\":1,"
+        + "\"a\":{\"b\":2},\"c\":3}", "[]", "{}", "123");
+
+    ForkJoinPool pool = new ForkJoinPool(3);
+    try {
+      for (String json : jsons) {
+        for (FlattenMode mode : FlattenMode.values()) {
+          if (mode == FlattenMode.MONGODB && json.contains("a.b")) continue;
+
+          JsonFlattener expected = new JsonFlattener(json).withFlattenMode(mode);
+          for (ForkJoinPool fjp : newArrayList(pool, ForkJoinPool.commonPool())) {
+            JsonFlattener actual = new JsonFlattener(json).withFlattenMode(mode)
+                .withForkJoinPool(fjp).withParallelThreshold(1);
+            if (json.contains("a.b")) {
+              expected.ignoreReservedCharacters();
+              actual.ignoreReservedCharacters();
+            }
+            assertEquals(expected.flattenAsMap(), actual.flattenAsMap(), json);
+            assertEquals(newArrayList(expected.flattenAsMap().keySet()),
+                newArrayList(actual.flattenAsMap().keySet()));
+            assertEquals(expected.flatten(), actual.flatten());
+          }
+        }
+      }
+
+      assertThrows(IllegalArgumentException.class, () -> {
+        new JsonFlattener("[{\"a\":1},{\"b.c\":2}]").withFlattenMode(FlattenMode.MONGODB)
+            .withForkJoinPool(pool).withParallelThreshold(1).flattenAsMap();
+      });
+    } finally {
+      pool.shutdown();
+    }
+
+    assertThrows(IllegalArgumentException.class, () -> {
+      new JsonFlattener("{}").withParallelThreshold(0);
+    });
+  }
+
+  @Test
+  public void testFlattenAsIteratorAndStream() throws IOException {
+    URL url = Resources.getResource("test.json");
+    String json = Resources.toString(url, StandardCharsets.UTF_8);
+
+    for (String src : newArrayList(json, "{}", "[]", "123", "null", "[[]]", "[1,[2,{}],[]]",
+        "{\"root\":{},\"a\":{\"b\":[]}}")) {
+      for (FlattenMode mode : FlattenMode.values()) {
+        Map<String, Object> expected = new JsonFlattener(src).withFlattenMode(mode).flattenAsMap();
+
+        Map<String, Object> actual = new LinkedHashMap<>();
+        Iterator<Entry<String, Object>> iter =
+            new JsonFlattener(src).withFlattenMode(mode).flattenAsIterator();
+        while (iter.hasNext()) {
+          Entry<String, Object> entry = iter.next();
+          actual.put(entry.getKey(), entry.getValue());
+        }
+        assertEquals(expected, actual);
+        assertEquals(newArrayList(expected.keySet()), newArrayList(actual.keySet()));
+        assertThrows(NoSuchElementException.class, () -> iter.next());
+
+        assertEquals(newArrayList(expected.entrySet()), new JsonFlattener(src)
+            .withFlattenMode(mode).flattenAsStream().collect(Collectors.toList()));
+      }
+    }
+
+    JsonFlattener jf = new JsonFlattener(json);
+    assertEquals(newArrayList(jf.flattenAsMap().entrySet()),
+        jf.flattenAsStream().collect(Collectors.toList()));
+    assertTrue(jf.flattenAsStream().spliterator().hasCharacteristics(Spliterator.ORDERED));
+  }
+
+  @Test
+  public void testFlattenAsStreamIsLazy() {
+    StringBuilder sb = new StringBuilder("[");
+    for (int i = 0; i < 10000; i++) {
+      if (i != 0) sb.append(',');
+      sb.append("{\"v\":").append(i).append('}');
+    }
+    String json = sb.append(']').toString();
+
+    // Every visited object key passes through the KeyTransformer
+    AtomicInteger visits = new AtomicInteger();
+    KeyTransformer counter = key -> {
+      visits.incrementAndGet();
+      return key;
+    };
+
+    List<String> first = new JsonFlattener(json).withKeyTransformer(counter).flattenAsStream()
+        .limit(3).map(Entry::getKey).collect(Collectors.toList());
+    assertEquals(newArrayList("[0].v", "[1].v", "[2].v"), first);
+    assertEquals(3, visits.get());
+
+    visits.set(0);
+    assertTrue(new JsonFlattener(json).withKeyTransformer(counter).flattenAsStream()
+        .anyMatch(e -> e.getValue().equals(5)));
+    assertEquals(6, visits.get());
+  }
+
+  @Test
+  public void testWithIncludedAndExcludedKeys() {
+    String json = "{\"id\":7,\"payload\":{\"items\":[{\"sku\":\"a\",\"qty\":1},"
+        + "{\"sku\":\"b\",\"qty\":2}],\"debug\":{\"trace\":[1,2]}},\"meta\":{\"v\":1}}";
+
+    assertEquals("{\"payload.items[0].sku\":\"a\",\"payload.items[1].sku\":\"b\"}",
+        new JsonFlattener(json).withIncludedKeys("payload.items[*].sku").flatten());
+    assertEquals("{\"id\":7,\"payload.items[1].sku\":\"b\",\"payload.items[1].qty\":2}",
+        new JsonFlattener(json).withIncludedKeys("id", "payload.items[1]").flatten());
+    assertEquals("{\"id\":7,\"payload.items[0].sku\":\"a\",\"payload.items[1].sku\":\"b\","
+        + "\"meta.v\":1}",
+        new JsonFlattener(json).withExcludedKeys("payload.debug", "payload.items[*].qty")
+            .flatten());
+    assertEquals("{\"payload.items[0].qty\":1,\"payload.items[1].qty\":2}",
+        new JsonFlattener(json).withIncludedKeys("payload").withExcludedKeys("*.*[*].s*", "*.debug")
+            .flatten());
+    assertEquals("{}", new JsonFlattener(json).withIncludedKeys("payload.none").flatten());
+    assertEquals("{\"payload.items\":[{\"sku\":\"a\",\"qty\":1},{\"sku\":\"b\",\"qty\":2}]}",
+        new JsonFlattener(json).withFlattenMode(FlattenMode.KEEP_ARRAYS)
+            .withIncludedKeys("payload.items").flatten());
+    assertEquals("{\"payload.debug.trace\":[1,2]}",
+        new JsonFlattener(json).withFlattenMode(FlattenMode.KEEP_PRIMITIVE_ARRAYS)
+            .withIncludedKeys("payload.debug").flatten());
+    assertEquals("{\"payload.items.1.sku\":\"b\"}", new JsonFlattener(json)
+        .withFlattenMode(FlattenMode.MONGODB).withIncludedKeys("payload.*.1.sku").flatten());
+    assertEquals("{\"payload/items{0}/sku\":\"a\",\"payload/items{1}/sku\":\"b\"}",
+        new JsonFlattener(json).withSeparator('/').withLeftAndRightBrackets('{', '}')
+            .withIncludedKeys("payload/items{*}/sku").flatten());
+    assertEquals("{\"a[\\\"b.c\\\"]\":1}", new JsonFlattener("{\"a\":{\"b.c\":1,\"d\":2}}")
+        .withIncludedKeys("a[\"b.c\"]").flatten());
+    assertEquals("{\"ID\":7}", new JsonFlattener(json).withKeyTransformer(String::toUpperCase)
+        .withIncludedKeys("ID").flatten());
+    assertEquals("{}", new JsonFlattener("[1,2]").withIncludedKeys("[*]").withExcludedKeys("[*]")
+        .flatten());
+    assertEquals("1", new JsonFlattener("1").withExcludedKeys("a").flatten());
+
+    for (String pattern : newArrayList("", ".a", "a.", "a..b", "a[", "a[x]", "a[0]b", "a]")) {
+      assertThrows(IllegalArgumentException.class,
+          () -> new JsonFlattener(json).withIncludedKeys(pattern), pattern);
+    }
+    assertThrows(NullPointerException.class,
+        () -> new JsonFlattener(json).withExcludedKeys((String) null));
+  }
+
+  @Test
+  public void testProjectionSkipsSubtrees() {
+    StringBuilder sb = new StringBuilder("{\"keep\":1,\"skip\":[");
+    for (int i = 0; i < 10000; i++) {
+      if (i != 0) sb.append(',');
+      sb.append("{\"v\":").append(i).append('}');
+    }
+    String json = sb.append("]}").toString();
+
+    // Every visited object key passes through the KeyTransformer
+    AtomicInteger visits = new AtomicInteger();
+    KeyTransformer counter = key -> {
+      visits.incrementAndGet();
+      return key;
+    };
+
+    assertEquals("{\"keep\":1}",
+        new JsonFlattener(json).withKeyTransformer(counter).withExcludedKeys("skip").flatten());
+    assertEquals(2, visits.get());
+
+    visits.set(0);
+    assertEquals("{\"skip[3].v\":3}", new JsonFlattener(json).withKeyTransformer(counter)
+        .withIncludedKeys("skip[3]").flatten());
+    assertEquals(3, visits.get());
+
+    visits.set(0);
+    assertEquals("{\"keep\":1}", new StreamingJsonFlattener().withKeyTransformer(counter)
+        .withIncludedKeys("keep").flatten(json));
+    assertEquals(2, visits.get());
+
+    assertEquals(new JsonFlattener(json).withIncludedKeys("skip[*].v").withExcludedKeys("skip[7]")
+        .flattenAsMap(),
+        new JsonFlattener(json).withIncludedKeys("skip[*].v").withExcludedKeys("skip[7]")
+            .withForkJoinPool(ForkJoinPool.commonPool()).withParallelThreshold(1).flattenAsMap());
+    assertEquals(9999, new JsonFlattener(json).withIncludedKeys("skip[*].v")
+        .withExcludedKeys("skip[7]").flattenAsStream().count());
+  }
+
+  @Test
+  public void testReset() throws IOException {
+    List<String> jsons = newArrayList("{\"a\":{\"b\":[1,{\"c\":2}]},\"d\":3}", "[{\"x\":null}]",
+        "\"abc\"", "{}", "{\"a\":{\"b\":\"e\"},\"f\":[]}");
+
+    JsonFlattener jf = new JsonFlattener("{}").withSeparator('/').withExcludedKeys("d");
+    for (String json : jsons) {
+      String expected =
+          new JsonFlattener(json).withSeparator('/').withExcludedKeys("d").flatten();
+      assertEquals(expected, jf.reset(json).flatten());
+      assertEquals(expected, jf.reset(new StringReader(json)).flatten());
+      assertEquals(expected, jf.reset(new Jackson3JsonCore().parse(json)).flatten());
+    }
+
+    Map<String, Object> first = jf.reset(jsons.get(0)).flattenAsMap();
+    Map<String, Object> second = jf.reset(jsons.get(1)).flattenAsMap();
+    assertEquals(ImmutableMap.of("a/b[0]", 1, "a/b[1]/c", 2), first);
+    assertEquals(Collections.singletonMap("[0]/x", null), second);
+    assertNotSame(first, second);
+
+    assertEquals("{\"a.b\":\"e\",\"f\":[]}",
+        jf.withSeparator('.').withExcludedKeys().reset(jsons.get(4)).flatten());
+    assertThrows(NullPointerException.class, () -> jf.reset((JsonValueBase<?>) null));
+  }
+
+  @Test
+  public void testKeepArraysInSinglePass() {
+    String json = "{\"a\":[1,{\"b\":{\"c\":[2,{\"d\":{}}],\"e\":{\"f\":[]}},\"g\":null},"
+        + "[[3],{\"h\":4}],[]],\"i\":[5,6],\"j\":[7,[8],9]}";
+    assertEquals("{\"a\":[1,{\"b.c\":[2,{\"d\":{}}],\"b.e.f\":[],\"g\":null},[[3],{\"h\":4}],[]],"
+        + "\"i\":[5,6],\"j\":[7,[8],9]}",
+        new JsonFlattener(json).withFlattenMode(FlattenMode.KEEP_ARRAYS).flatten());
+    assertEquals("{\"a[0]\":1,\"a[1].b.c[0]\":2,\"a[1].b.c[1].d\":{},\"a[1].b.e.f\":[],"
+        + "\"a[1].g\":null,\"a[2][0]\":[3],\"a[2][1].h\":4,\"a[3]\":[],\"i\":[5,6],"
+        + "\"j[0]\":7,\"j[1]\":[8],\"j[2]\":9}",
+        new JsonFlattener(json).withFlattenMode(FlattenMode.KEEP_PRIMITIVE_ARRAYS).flatten());
+    assertEquals("{\"j[0]\":7,\"j[2]\":9}",
+        new JsonFlattener(json).withFlattenMode(FlattenMode.KEEP_PRIMITIVE_ARRAYS)
+            .withIncludedKeys("j").withExcludedKeys("j[1]").flatten());
+
+    // An empty JSON object of ROOT is dropped as if each kept object is flattened on its own
+    json = "{\"x\":[{\"root\":{}},{\"a\":{\"root\":{}},\"root\":{}},[{\"root\":{}}]]}";
+    String expected = "{\"x\":[{},{\"a.root\":{}},[{}]]}";
+    assertEquals(expected,
+        new JsonFlattener(json).withFlattenMode(FlattenMode.KEEP_ARRAYS).flatten());
+    assertEquals(expected,
+        new StreamingJsonFlattener().withFlattenMode(FlattenMode.KEEP_ARRAYS).flatten(json));
+
+    // Nested arrays far deeper than the call stack allows
+    List<Object> deepest = newArrayList();
+    List<Object> nested = deepest;
+    for (int i = 0; i < 100000; i++) {
+      nested = newArrayList(nested, Collections.singletonMap("k", i));
+    }
+    Object kept = new JsonFlattener(new JavaJsonValue(Collections.singletonMap("a", nested)))
+        .withFlattenMode(FlattenMode.KEEP_ARRAYS).flattenAsMap().get("a");
+    for (int i = 99999; i >= 0; i--) {
+      List<?> list = (List<?>) kept;
+      assertEquals(Collections.singletonMap("k", i), list.get(1));
+      kept = list.get(0);
+    }
+    assertEquals(Collections.emptyList(), kept);
+  }
+
 }
@@ -0,0 +1,124 @@
+/*
+ *
+ * Copyright 2026 Wei-Ming Wu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package com.github.wnameless.json.flattener;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+import org.apache.commons.text.StringEscapeUtils;
+import org.apache.commons.text.translate.AggregateTranslator;
+import org.apache.commons.text.translate.CharSequenceTranslator;
+import org.apache.commons.text.translate.EntityArrays;
+import org.apache.commons.text.translate.JavaUnicodeEscaper;
+import org.apache.commons.text.translate.LookupTranslator;
+import org.junit.jupiter.api.Test;
+import com.google.common.collect.ImmutableMap;
+
+public class JsonStringEscaperTest {
+
+  // The lookup based translators which StringEscapePolicy used to be made of
+  private static final Map<StringEscapePolicy, CharSequenceTranslator> oracles =
+      new EnumMap<>(StringEscapePolicy.class);
+  static {
+    CharSequenceTranslator quoteAndBackslash =
+        new LookupTranslator(ImmutableMap.of("\"", "\\\"", "\\", "\\\\"));
+    CharSequenceTranslator quoteBackslashAndSlash =
+        new LookupTranslator(ImmutableMap.of("\"", "\\\"", "\\", "\\\\", "/", "\\/"));
+    CharSequenceTranslator ctrlChars = new LookupTranslator(EntityArrays.JAVA_CTRL_CHARS_ESCAPE);
+
+    oracles.put(StringEscapePolicy.ALL, StringEscapeUtils.ESCAPE_JSON);
+    oracles.put(StringEscapePolicy.ALL_BUT_SLASH, new AggregateTranslator(quoteAndBackslash,
+        ctrlChars, JavaUnicodeEscaper.outsideOf(32, 0x7f)));
+    oracles.put(StringEscapePolicy.ALL_BUT_UNICODE,
+        new AggregateTranslator(quoteBackslashAndSlash, ctrlChars));
+    oracles.put(StringEscapePolicy.ALL_BUT_SLASH_AND_UNICODE,
+        new AggregateTranslator(quoteAndBackslash, ctrlChars));
+    oracles.put(StringEscapePolicy.DEFAULT, new AggregateTranslator(quoteAndBackslash, ctrlChars));
+  }
+
+  private void assertSameAsOracle(StringEscapePolicy policy, String input) throws IOException {
+    String expected = oracles.get(policy).translate(input);
+    CharSequenceTranslator translator = policy.getCharSequenceTranslator();
+
+    assertEquals(expected, translator.translate(input));
+    assertEquals(expected, JsonStringEscaper.escape(translator, input));
+    assertEquals(expected, JsonStringEscaper.escape(translator, new StringBuilder(input)));
+
+    StringWriter sw = new StringWriter();
+    JsonStringEscaper.escape(translator, input, sw);
+    assertEquals(expected, sw.toString());
+
+    sw = new StringWriter();
+    JsonStringEscaper.escape(translator, new StringBuilder(input), sw);
+    assertEquals(expected, sw.toString());
+  }
+
+  @Test
+  public void testSameAsLookupTranslators() throws IOException {
+    for (StringEscapePolicy policy : StringEscapePolicy.values()) {
+      assertSameAsOracle(policy, "");
+      assertSameAsOracle(policy, "😀 \uD83D \uDE00\uD83D");
+      for (int c = 0; c <= Character.MAX_VALUE; c++) {
+        assertSameAsOracle(policy, "a" + (char) c + "b");
+      }
+
+      char[] alphabet = {'a', 'Z', '"', '\\', '/', '\b', '\n', '\t', '\f', '\r', '\u0001', '\u007f',
+          'é', '太', '\uD83D', '\uDE00'};
+      Random random = new Random(20260101L);
+      for (int i = 0; i < 5000; i++) {
+        char[] chars = new char[random.nextInt(16)];
+        for (int j = 0; j < chars.length; j++) {
+          chars[j] = alphabet[random.nextInt(alphabet.length)];
+        }
+        assertSameAsOracle(policy, new String(chars));
+      }
+    }
+  }
+
+  @Test
+  public void testUnchangedInputIsReturned() {
+    String input = "plain ASCII text";
+    assertSame(input, JsonStringEscaper.escape(
+        StringEscapePolicy.DEFAULT.getCharSequenceTranslator(), input));
+  }
+
+  @Test
+  public void testComposedWithOtherTranslators() {
+    CharSequenceTranslator eAcute = new LookupTranslator(ImmutableMap.of("é", "\\u00E9"));
+    CharSequenceTranslator withEAcute =
+        StringEscapePolicy.DEFAULT.getCharSequenceTranslator().with(eAcute);
+    assertEquals("caf\\u00E9 \\\"", withEAcute.translate("café \""));
+    assertEquals("{\"a\":\"caf\\u00E9\"}",
+        new JsonFlattener("{\"a\":\"café\"}").withStringEscapePolicy(() -> withEAcute).flatten());
+
+    CharSequenceTranslator aggregate =
+        new AggregateTranslator(new LookupTranslator(ImmutableMap.of("x", "y")),
+            StringEscapePolicy.ALL.getCharSequenceTranslator());
+    assertEquals("y\\u00E9y\\/", aggregate.translate("xéx/"));
+    assertEquals("y\\uD83D\\uDE00y", aggregate.translate("x😀x"));
+  }
+
+  @Test
+  public void testCustomTranslator() {
+    CharSequenceTranslatorFactory policy = () -> StringEscapeUtils.ESCAPE_XML10;
+    assertEquals("{\"a\":\"&lt;b&gt;\"}",
+        new JsonFlattener("{\"a\":\"<b>\"}").withStringEscapePolicy(policy).flatten());
+  }
+
+}
@@ -0,0 +1,114 @@
+/*
+ *
+ * Copyright 2026 Wei-Ming Wu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package com.github.wnameless.json.flattener;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import com.github.wnameless.json.base.JsonPrinter;
+import com.github.wnameless.json.unflattener.JsonUnflattener;
+import com.google.common.io.Resources;
+
+public class PrettyJsonWriterTest {
+
+  private String prettyPrint(String json, String indent, int chunkSize) throws IOException {
+    StringWriter sw = new StringWriter();
+    try (PrettyJsonWriter writer = new PrettyJsonWriter(sw, indent)) {
+      for (int i = 0; i < json.length(); i += chunkSize) {
+        String chunk = json.substring(i, Math.min(json.length(), i + chunkSize));
+        if (chunkSize == 1) {
+          writer.write(chunk.charAt(0));
+        } else if (chunkSize % 2 == 0) {
+          writer.write(chunk);
+        } else {
+          writer.write(chunk.toCharArray());
+        }
+      }
+    }
+    return sw.toString();
+  }
+
+  @Test
+  public void testSameAsJsonPrinter() throws IOException {
+    URL url = Resources.getResource("test.json");
+    List<String> jsons = Arrays.asList(Resources.toString(url, StandardCharsets.UTF_8), "{}", "[]",
+        "[[],{}]", "\"abc\"", "123", "null", "{\"a\":\"b\\\"c\"}", "{\"a\":\"b\\\\\"}",
+        "{\"a b\" : [ 1 , 2 ]}", "{\"a\":\"{[,:]}\"}", "\\\"x", "}}]]", "{\"a\\\\\\\"\":1}");
+    for (String json : jsons) {
+      for (int chunkSize : new int[] {1, 2, 3, 7, 1000}) {
+        assertEquals(JsonPrinter.prettyPrint(json), prettyPrint(json, "  ", chunkSize), json);
+      }
+    }
+
+    char[] alphabet = {'{', '}', '[', ']', ',', ':', '"', '\\', 'a', '1', ' ', '\n', '\t'};
+    Random random = new Random(20260101L);
+    for (int i = 0; i < 20000; i++) {
+      char[] chars = new char[random.nextInt(16)];
+      for (int j = 0; j < chars.length; j++) {
+        chars[j] = alphabet[random.nextInt(alphabet.length)];
+      }
+      String json = new String(chars);
+      assertEquals(JsonPrinter.prettyPrint(json), prettyPrint(json, "  ", 3), json);
+      assertEquals(JsonPrinter.prettyPrint(json, "\t"), prettyPrint(json, "\t", 2), json);
+    }
+  }
+
+  @Test
+  public void testIndent() throws IOException {
+    String json = "{\"a\":{\"b\":[1,2]},\"c\":3}";
+    assertEquals(JsonPrinter.prettyPrint(json, "    "), prettyPrint(json, "    ", 1000));
+    assertEquals(JsonPrinter.prettyPrint(json, ""), prettyPrint(json, "", 1000));
+
+    assertEquals("{\n\t\"a\" : 1\n}",
+        new JsonFlattener("{\"a\":1}").withPrintMode(PrintMode.PRETTY).withIndent("\t").flatten());
+    assertEquals("{\n\t\"a\" : {\n\t\t\"b\" : [ 1 ]\n\t}\n}",
+        new JsonUnflattener("{\"a.b\":[1]}").withPrintMode(PrintMode.PRETTY).withIndent("\t")
+            .unflatten());
+
+    StringWriter sw = new StringWriter();
+    assertThrows(NullPointerException.class, () -> new PrettyJsonWriter(sw, null));
+    assertThrows(IllegalArgumentException.class, () -> new PrettyJsonWriter(sw, " x"));
+    assertThrows(NullPointerException.class, () -> new PrettyJsonWriter(null));
+    assertThrows(IllegalArgumentException.class, () -> new JsonFlattener("{}").withIndent("-"));
+    assertThrows(IllegalArgumentException.class, () -> new JsonUnflattener("{}").withIndent("\n"));
+  }
+
+  @Test
+  public void testJsonifyCollections() {
+    JsonifyLinkedHashMap<String, Object> map = new JsonifyLinkedHashMap<>();
+    map.put("a", Arrays.asList(1, "b", Arrays.asList()));
+    map.put("c\"d", null);
+    map.put("e", new JsonifyLinkedHashMap<>());
+    assertEquals(JsonPrinter.prettyPrint(map.toString()), map.toString(PrintMode.PRETTY));
+    assertEquals(JsonPrinter.prettyPrint(map.toString(), "\t"),
+        map.toString(PrintMode.PRETTY, "\t"));
+    assertEquals(map.toString(), map.toString(PrintMode.MINIMAL, "\t"));
+
+    JsonifyArrayList<Object> list = new JsonifyArrayList<>();
+    list.add(map);
+    list.add(1.5);
+    assertEquals(JsonPrinter.prettyPrint(list.toString()), list.toString(PrintMode.PRETTY));
+    assertEquals(JsonPrinter.prettyPrint("[]"),
+        new JsonifyArrayList<>().toString(PrintMode.PRETTY));
+  }
+
+}
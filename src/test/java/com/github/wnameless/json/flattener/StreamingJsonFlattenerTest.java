@@ -0,0 +1,324 @@
+/*
+ *
+ * Copyright 2026 Wei-Ming Wu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package com.github.wnameless.json.flattener;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import com.google.common.io.Resources;
+
+public class StreamingJsonFlattenerTest {
+
+  static List<String> resources = Arrays.asList("test.json", "test2.json", "test3.json",
+      "test4.json", "test5.json", "test6.json", "test_keep_primitive_arrays.json",
+      "test_mongo.json", "test_print_mode_unflatten_minimal.json");
+
+  static List<String> jsons = Arrays.asList("{}", "[]", "null", "123", "\"abc\"", "true", "2.00",
+      "[[]]", "[{}]", "[1,[2,{}],[]]", "[[{\"abc\":{\"def\":123}}]]", "{\"root\":{}}",
+      "{\"root\":null,\"ss\":[123]}", "{\"a\":{\"b\":[]},\"c\":{}}", "[{\"a.a.[\":1},2,{\"c\":[3,4]}]",
+      "{\"item_list\":[{\"\":67,\"val\":6}]}", "{\"\":[{\"\":67,\"val\":6}]}",
+      "[{\"abc\\t\":\" \\\" \\r \\t \\u1234 \"}]", "{\"abc\":{\"def\":\"太極/兩儀\"}}",
+      "[1,2,{\"a\":[3,[4,5],{\"b\":[]}]},[6,{\"c\":7}],8]", "{\"big\":12345678901234567890}",
+      "{\"long\":3000000000,\"double\":1e20,\"neg\":-0.0}");
+
+  private String resource(String name) throws IOException {
+    URL url = Resources.getResource(name);
+    return Resources.toString(url, StandardCharsets.UTF_8);
+  }
+
+  private void assertSameAsJsonFlattener(String json) throws IOException {
+    for (FlattenMode mode : FlattenMode.values()) {
+      for (StringEscapePolicy policy : StringEscapePolicy.values()) {
+        StreamingJsonFlattener sjf =
+            new StreamingJsonFlattener().withFlattenMode(mode).withStringEscapePolicy(policy);
+
+        String expected;
+        try {
+          expected = new JsonFlattener(json).withFlattenMode(mode).withStringEscapePolicy(policy)
+              .flatten();
+        } catch (IllegalArgumentException e) {
+          assertThrows(IllegalArgumentException.class, () -> sjf.flatten(json));
+          continue;
+        }
+        assertEquals(expected, sjf.flatten(json));
+        assertEquals(new JsonFlattener(json).withFlattenMode(mode).withStringEscapePolicy(policy)
+            .flattenAsMap(), sjf.flattenAsMap(new StringReader(json)));
+        assertEquals(new JsonFlattener(json).withFlattenMode(mode).withStringEscapePolicy(policy)
+            .flattenAsMap().toString(), sjf.flattenAsMap(json).toString());
+      }
+    }
+  }
+
+  @Test
+  public void testFlattenSameAsJsonFlattener() throws IOException {
+    for (String name : resources) {
+      assertSameAsJsonFlattener(resource(name));
+    }
+    for (String json : jsons) {
+      assertSameAsJsonFlattener(json);
+    }
+  }
+
+  @Test
+  public void testFlattenToWriter() throws IOException {
+    String json = resource("test2.json");
+
+    StringWriter sw = new StringWriter();
+    new StreamingJsonFlattener().flatten(new StringReader(json), sw);
+    assertEquals("{\"a.b\":1,\"a.c\":null,\"a.d[0]\":false,\"a.d[1]\":true,\"e\":\"f\",\"g\":2.3}",
+        sw.toString());
+
+    sw = new StringWriter();
+    new StreamingJsonFlattener()
+        .flatten(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), sw);
+    assertEquals("{\"a.b\":1,\"a.c\":null,\"a.d[0]\":false,\"a.d[1]\":true,\"e\":\"f\",\"g\":2.3}",
+        sw.toString());
+  }
+
+  @Test
+  public void testFlattenTo() throws IOException {
+    String json = resource("test.json");
+
+    for (FlattenMode mode : FlattenMode.values()) {
+      Map<String, Object> expected = new JsonFlattener(json).withFlattenMode(mode).flattenAsMap();
+
+      Map<String, Object> actual = new LinkedHashMap<>();
+      new StreamingJsonFlattener().withFlattenMode(mode).flattenTo(json, actual::put);
+      assertEquals(expected, actual);
+      assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(actual.keySet()));
+
+      actual = new LinkedHashMap<>();
+      new StreamingJsonFlattener().withFlattenMode(mode).flattenTo(new StringReader(json),
+          actual::put);
+      assertEquals(expected, actual);
+    }
+
+    assertThrows(NullPointerException.class, () -> {
+      new StreamingJsonFlattener().flattenTo(json, null);
+    });
+  }
+
+  @Test
+  public void testWithSeparatorAndBrackets() throws IOException {
+    String json = "{\"abc\":{\"A.\":[123,\"def\"],\"g*h\":{\"i\":1}}}";
+
+    assertEquals(new JsonFlattener(json).withSeparator('*').flatten(),
+        new StreamingJsonFlattener().withSeparator('*').flatten(json));
+    assertEquals(new JsonFlattener(json).withLeftAndRightBrackets('{', '}').flatten(),
+        new StreamingJsonFlattener().withLeftAndRightBrackets('{', '}').flatten(json));
+    assertEquals(
+        new JsonFlattener(json).withFlattenMode(FlattenMode.MONGODB).withSeparator('_').flatten(),
+        new StreamingJsonFlattener().withFlattenMode(FlattenMode.MONGODB).withSeparator('_')
+            .flatten(json));
+  }
+
+  @Test
+  public void testWithSeparatorException() {
+    try {
+      new StreamingJsonFlattener().withSeparator('"');
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("Separator contains illegal character(\")", e.getMessage());
+    }
+    try {
+      new StreamingJsonFlattener().withSeparator('[');
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("Separator([) is already used in brackets", e.getMessage());
+    }
+    try {
+      new StreamingJsonFlattener().withLeftAndRightBrackets('.', ']');
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("Left bracket contains illegal character(.)", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testWithKeyTransformerAndIgnoreReservedCharacters() {
+    String json = "{\"abc\":{\"de.f\":123}}";
+    KeyTransformer keyTrans = key -> key.replace('.', '_');
+
+    assertEquals("{\"abc.de_f\":123}", new StreamingJsonFlattener()
+        .withFlattenMode(FlattenMode.MONGODB).withKeyTransformer(keyTrans).flatten(json));
+    assertEquals("{\"abc.de.f\":123}",
+        new StreamingJsonFlattener().ignoreReservedCharacters().flatten(json));
+
+    try {
+      new StreamingJsonFlattener().withFlattenMode(FlattenMode.MONGODB).flatten(json);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("Key cannot contain separator(.) in FlattenMode.MONGODB", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testDuplicateKeys() {
+    StreamingJsonFlattener sjf = new StreamingJsonFlattener().ignoreReservedCharacters();
+    String json = "{\"a.b\":1,\"a\":{\"b\":2}}";
+    assertEquals("{\"a.b\":1,\"a.b\":2}", sjf.flatten(json));
+    assertEquals("{\"a.b\":2}", sjf.flattenAsMap(json).toString());
+    assertEquals("{\"a.b\":2}", new JsonFlattener(json).ignoreReservedCharacters().flatten());
+  }
+
+  @Test
+  public void testDeeplyNestedJson() {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 200; i++) {
+      sb.append("{\"a\":[");
+    }
+    sb.append(1);
+    for (int i = 0; i < 200; i++) {
+      sb.append("]}");
+    }
+    String json = sb.toString();
+
+    assertEquals(new JsonFlattener(json).flatten(), new StreamingJsonFlattener().flatten(json));
+  }
+
+  @Test
+  public void testFlattenLines() throws IOException {
+    List<String> records = new ArrayList<>(jsons);
+    records.add(resource("test.json").replace('\n', ' '));
+    records.add(resource("test_mongo.json").replace('\n', ' '));
+
+    for (FlattenMode mode : FlattenMode.values()) {
+      StreamingJsonFlattener sjf = new StreamingJsonFlattener().withFlattenMode(mode);
+      // Keys with dots can't be flattened in MONGODB mode
+      List<String> lines = new ArrayList<>();
+      for (String record : records) {
+        if (mode != FlattenMode.MONGODB || !record.contains(".")) lines.add(record);
+      }
+      String jsonLines = String.join("\n", lines.subList(0, 5)) + "\n\n"
+          + String.join("\r\n", lines.subList(5, lines.size()));
+
+      StringBuilder expected = new StringBuilder();
+      List<Map<String, Object>> expectedMaps = new ArrayList<>();
+      for (String record : lines) {
+        expected.append(new JsonFlattener(record).withFlattenMode(mode).flatten()).append('\n');
+        expectedMaps.add(new JsonFlattener(record).withFlattenMode(mode).flattenAsMap());
+      }
+
+      StringWriter sw = new StringWriter();
+      sjf.flattenLines(new StringReader(jsonLines), sw);
+      assertEquals(expected.toString(), sw.toString());
+
+      sw = new StringWriter();
+      sjf.flattenLines(new ByteArrayInputStream(jsonLines.getBytes(StandardCharsets.UTF_8)), sw);
+      assertEquals(expected.toString(), sw.toString());
+
+      List<Map<String, Object>> maps = new ArrayList<>();
+      sjf.flattenLinesAsMap(new StringReader(jsonLines), maps::add);
+      assertEquals(expectedMaps, maps);
+
+      maps.clear();
+      sjf.flattenLinesAsMap(new ByteArrayInputStream(jsonLines.getBytes(StandardCharsets.UTF_8)),
+          maps::add);
+      assertEquals(expectedMaps, maps);
+    }
+
+    StringWriter sw = new StringWriter();
+    new StreamingJsonFlattener().flattenLines(new StringReader(" \n\n"), sw);
+    assertEquals("", sw.toString());
+
+    assertThrows(RuntimeException.class, () -> {
+      new StreamingJsonFlattener().flattenLines(new StringReader("{}\n{\"a\":}"),
+          new StringWriter());
+    });
+    assertThrows(NullPointerException.class, () -> {
+      new StreamingJsonFlattener().flattenLines(new StringReader("{}"), null);
+    });
+    assertThrows(NullPointerException.class, () -> {
+      new StreamingJsonFlattener().flattenLinesAsMap(new StringReader("{}"), null);
+    });
+  }
+
+  @Test
+  public void testWithIncludedAndExcludedKeys() throws IOException {
+    List<String> inputs = new ArrayList<>(jsons);
+    inputs.add(resource("test.json"));
+    inputs.add(resource("test2.json"));
+    inputs.add(resource("test_keep_primitive_arrays.json"));
+    List<List<String>> projections = Arrays.asList(Arrays.asList("a", "[*]"),
+        Arrays.asList("*.d[1]", "[1]"), Arrays.asList("[*].a[*]", "a.*"),
+        Arrays.asList("*", "[2].*"), Arrays.asList("[0]", "root"));
+
+    for (String json : inputs) {
+      for (FlattenMode mode : FlattenMode.values()) {
+        for (List<String> patterns : projections) {
+          JsonFlattener jf = new JsonFlattener(json).withFlattenMode(mode)
+              .withIncludedKeys(patterns.get(0)).withExcludedKeys(patterns.get(1));
+          StreamingJsonFlattener sjf = new StreamingJsonFlattener().withFlattenMode(mode)
+              .withIncludedKeys(patterns.get(0)).withExcludedKeys(patterns.get(1));
+
+          String expected;
+          try {
+            expected = jf.flatten();
+          } catch (IllegalArgumentException e) {
+            continue;
+          }
+          assertEquals(expected, sjf.flatten(json), json + " " + patterns);
+          assertEquals(jf.flattenAsMap(), sjf.flattenAsMap(json));
+        }
+      }
+    }
+
+    assertEquals("{\"a.b\":1}\n{}\n", flattenLines(new StreamingJsonFlattener()
+        .withIncludedKeys("a.b").withExcludedKeys("c"), "{\"a\":{\"b\":1},\"c\":2}\n{\"c\":3}"));
+    assertThrows(IllegalArgumentException.class,
+        () -> new StreamingJsonFlattener().withIncludedKeys("a[b]"));
+  }
+
+  private String flattenLines(StreamingJsonFlattener sjf, String jsonLines) throws IOException {
+    StringWriter sw = new StringWriter();
+    sjf.flattenLines(new StringReader(jsonLines), sw);
+    return sw.toString();
+  }
+
+  @Test
+  public void testInvalidJson() {
+    assertThrows(RuntimeException.class, () -> {
+      new StreamingJsonFlattener().flatten("abc[123]}");
+    });
+    assertThrows(RuntimeException.class, () -> {
+      new StreamingJsonFlattener().flatten("{\"a\":1} 2");
+    });
+    assertThrows(RuntimeException.class, () -> {
+      new StreamingJsonFlattener().flattenAsMap("");
+    });
+  }
+
+  @Test
+  public void testNullPointerException() {
+    assertThrows(NullPointerException.class, () -> {
+      new StreamingJsonFlattener().withFlattenMode(null);
+    });
+    assertThrows(NullPointerException.class, () -> {
+      new StreamingJsonFlattener().withStringEscapePolicy(null);
+    });
+  }
+
+}
@@ -0,0 +1,118 @@
+/*
+ *
+ * Copyright 2026 Wei-Ming Wu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package com.github.wnameless.json.unflattener;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.Test;
+import com.github.wnameless.json.flattener.FlattenMode;
+
+public class FlattenedKeyTokenizerTest {
+
+  private List<String> tokenize(FlattenMode mode, char sep, char left, char right, String key) {
+    FlattenedKeyTokenizer keyParts = new FlattenedKeyTokenizer(mode, sep, left, right);
+    List<String> parts = new ArrayList<>();
+    keyParts.reset(key);
+    while (keyParts.next()) {
+      parts.add(keyParts.isIndex() ? "#" + keyParts.index() : keyParts.key());
+    }
+    return parts;
+  }
+
+  // The regular expressions which JsonUnflattener used to split keys with
+  private List<String> tokenizeByRegex(char sep, char left, char right, String key) {
+    String l = Pattern.quote(String.valueOf(left));
+    String r = Pattern.quote(String.valueOf(right));
+    String s = Pattern.quote(String.valueOf(sep));
+    Pattern index = Pattern.compile(l + "\\s*\\d+\\s*" + r);
+    Pattern complex = Pattern.compile(l + "\\s*\".*?\"\\s*" + r);
+    Pattern part =
+        Pattern.compile(index.pattern() + "|" + complex.pattern() + "|[^" + s + l + r + "]+");
+
+    List<String> parts = new ArrayList<>();
+    Matcher matcher = part.matcher(key);
+    while (matcher.find()) {
+      String keyPart = matcher.group();
+      if (index.matcher(keyPart).matches()) {
+        parts.add("#" + Integer.valueOf(keyPart.replaceAll("[" + l + r + "\\s]", "")));
+      } else {
+        if (complex.matcher(keyPart).matches()) {
+          keyPart = keyPart.replaceAll("^" + l + "\\s*\"", "");
+          keyPart = keyPart.replaceAll("\"\\s*" + r + "$", "");
+        }
+        parts.add(keyPart);
+      }
+    }
+    return parts;
+  }
+
+  @Test
+  public void testSameAsRegex() {
+    List<String> keys = Arrays.asList("", "a", "a.b", "a[0]", "a[0].b", "[0][1]", "a[ 12 ]",
+        "a[\"b.c\"]", "a[ \"b.c\" ].d", "a[\"\"]", "[\"\"][\"\"]", "a..b", ".a.", "a[b]", "a[]",
+        "a[\"b\"c\"]", "a[\"b\"]c\"]", "a[\"b\n\"]", "a[\"b\"\n]", "a]b[c", "a[\"b", "[007]",
+        "a[\"b\" \"]", "a b.c d", "\"a\".b", "太極[0].兩儀");
+    for (String key : keys) {
+      assertEquals(tokenizeByRegex('.', '[', ']', key),
+          tokenize(FlattenMode.NORMAL, '.', '[', ']', key), key);
+      String custom = key.replace('.', '*').replace('[', '{').replace(']', '}');
+      assertEquals(tokenizeByRegex('*', '{', '}', custom),
+          tokenize(FlattenMode.KEEP_ARRAYS, '*', '{', '}', custom), custom);
+    }
+
+    char[] alphabet = {'a', 'b', '0', '1', '.', '[', ']', '"', ' ', '\n', '\t', '\\'};
+    Random random = new Random(20260101L);
+    for (int i = 0; i < 20000; i++) {
+      char[] chars = new char[random.nextInt(12)];
+      for (int j = 0; j < chars.length; j++) {
+        chars[j] = alphabet[random.nextInt(alphabet.length)];
+      }
+      String key = new String(chars);
+      assertEquals(tokenizeByRegex('.', '[', ']', key),
+          tokenize(FlattenMode.NORMAL, '.', '[', ']', key), key);
+    }
+  }
+
+  @Test
+  public void testMongodb() {
+    assertEquals(Arrays.asList(), tokenize(FlattenMode.MONGODB, '.', '[', ']', ""));
+    assertEquals(Arrays.asList("a", "#0", "b"),
+        tokenize(FlattenMode.MONGODB, '.', '[', ']', "a.0.b"));
+    assertEquals(Arrays.asList("item_list", "#0", ""),
+        tokenize(FlattenMode.MONGODB, '.', '[', ']', "item_list.0."));
+    assertEquals(Arrays.asList("", "#0", ""), tokenize(FlattenMode.MONGODB, '-', '[', ']', "-0-"));
+    assertEquals(Arrays.asList("a b", "$c", "#1", "[0]"),
+        tokenize(FlattenMode.MONGODB, '.', '[', ']', "a b.$c.01.[0]"));
+    assertEquals(Arrays.asList("b.c", "d"),
+        tokenize(FlattenMode.MONGODB, '_', '[', ']', "[ \"b.c\" ]_d"));
+  }
+
+  @Test
+  public void testIndexOverflow() {
+    assertThrows(NumberFormatException.class, () -> {
+      tokenize(FlattenMode.NORMAL, '.', '[', ']', "a[12345678901]");
+    });
+    assertThrows(NumberFormatException.class, () -> {
+      tokenize(FlattenMode.MONGODB, '.', '[', ']', "a.12345678901");
+    });
+  }
+
+}
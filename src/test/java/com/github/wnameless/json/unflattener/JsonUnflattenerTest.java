@@ -19,16 +19,28 @@ import static org.junit.jupiter.api.Assertions.*;
 import java.io.IOException;
 import java.io.Reader;
 import java.io.StringReader;
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
 import com.github.wnameless.json.base.Jackson3JsonCore;
 import com.github.wnameless.json.base.JsonCore;
+import com.github.wnameless.json.base.JsonValueCore;
+import com.github.wnameless.json.base.JsonValueUtils;
 import com.github.wnameless.json.flattener.FlattenMode;
 import com.github.wnameless.json.flattener.JsonFlattener;
+import com.github.wnameless.json.flattener.JsonifyLinkedHashMap;
 import com.github.wnameless.json.flattener.KeyTransformer;
 import com.github.wnameless.json.flattener.PrintMode;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.io.Resources;
 import tools.jackson.core.type.TypeReference;
 import tools.jackson.databind.DeserializationFeature;
@@ -598,4 +610,174 @@ public class JsonUnflattenerTest {
         .withFlattenMode(FlattenMode.MONGODB).withSeparator('-').unflatten());
   }
 
+  @Test
+  public void testUnflattenAsMapFromMapSameAsFromJson() throws IOException {
+    for (String name : new String[] {"test.json", "test2.json", "test3.json", "test4.json",
+        "test5.json", "test6.json", "test_keep_primitive_arrays.json", "test_mongo.json"}) {
+      String json = Resources.toString(Resources.getResource(name), StandardCharsets.UTF_8);
+      for (FlattenMode mode : FlattenMode.values()) {
+        Map<String, Object> flattenedMap;
+        try {
+          flattenedMap = new JsonFlattener(json).withFlattenMode(mode).flattenAsMap();
+        } catch (IllegalArgumentException e) { // keys with separator in MONGODB mode
+          continue;
+        }
+
+        assertEquals(
+            unflattenAsMapThroughJson(
+                new JsonUnflattener(new Jackson3JsonCore(), flattenedMap).withFlattenMode(mode)),
+            new JsonUnflattener(flattenedMap).withFlattenMode(mode).unflattenAsMap());
+      }
+    }
+  }
+
+  @Test
+  public void testUnflattenAsMapFromMapWithJavaValues() {
+    Map<String, Object> flattenedMap = new LinkedHashMap<>();
+    flattenedMap.put("a.int", 1);
+    flattenedMap.put("a.long", 1L);
+    flattenedMap.put("a.bigLong", 3000000000L);
+    flattenedMap.put("a.short", (short) 3);
+    flattenedMap.put("b[0]", 1.0);
+    flattenedMap.put("b[1]", 1e20);
+    flattenedMap.put("b[2]", 0.1f);
+    flattenedMap.put("b[3]", new BigDecimal("2.00"));
+    flattenedMap.put("b[4]", new BigDecimal("12345678901234567890.123456789"));
+    flattenedMap.put("b[5]", new BigInteger("123456789012345678901234"));
+    flattenedMap.put("c[\"d.e\"]", Arrays.asList(1, Collections.singletonMap("f.g", "h")));
+    flattenedMap.put("c.i", new LinkedHashSet<>(Arrays.asList(true, null)));
+    flattenedMap.put("c.j", Collections.emptyMap());
+
+    Map<String, Object> expected =
+        unflattenAsMapThroughJson(new JsonUnflattener(new Jackson3JsonCore(), flattenedMap));
+    assertEquals(expected, new JsonUnflattener(flattenedMap).unflattenAsMap());
+    assertEquals(expected.toString(), new JsonUnflattener(flattenedMap).unflattenAsMap().toString());
+
+    assertEquals(toRootMap("[[1],{\"a\":2}]"),
+        JsonUnflattener.unflattenAsMap(ImmutableMap.of("[0][0]", 1, "[1].a", 2)));
+    assertEquals(toMap("{}"), JsonUnflattener.unflattenAsMap(Collections.emptyMap()));
+  }
+
+  @Test
+  public void testUnflattenAsMapFromMapException() {
+    assertThrows(ClassCastException.class, () -> {
+      JsonUnflattener.unflattenAsMap(ImmutableMap.of("a", 1, "a.b", 2));
+    });
+    assertThrows(ClassCastException.class, () -> {
+      new JsonUnflattener(new Jackson3JsonCore(), ImmutableMap.of("a", 1, "a.b", 2))
+          .unflattenAsMap();
+    });
+    assertThrows(RuntimeException.class, () -> {
+      new JsonUnflattener(Collections.singletonMap("a", Double.NaN));
+    });
+  }
+
+  // The Map of nested objects read back from the unflattened JSON string
+  private Map<String, Object> unflattenAsMapThroughJson(JsonUnflattener ju) {
+    JsonValueCore<?> unflattened = new Jackson3JsonCore().parse(ju.unflatten());
+    if (unflattened.isObject()) return unflattened.asObject().toMap();
+
+    Map<String, Object> rootMap = new LinkedHashMap<>();
+    rootMap.put(JsonUnflattener.ROOT, JsonValueUtils.toObject(unflattened));
+    return rootMap;
+  }
+
+  @Test
+  public void testUnflattenAsMapFromJsonWithoutRoundTrip() throws IOException {
+    for (String name : new String[] {"test.json", "test2.json", "test3.json", "test4.json",
+        "test5.json", "test6.json", "test_keep_primitive_arrays.json", "test_long_decimal.json",
+        "test_mongo.json"}) {
+      String json = Resources.toString(Resources.getResource(name), StandardCharsets.UTF_8);
+      for (FlattenMode mode : FlattenMode.values()) {
+        String flattened;
+        try {
+          flattened = new JsonFlattener(json).withFlattenMode(mode).flatten();
+        } catch (IllegalArgumentException e) { // keys with separator in MONGODB mode
+          continue;
+        }
+
+        Map<String, Object> expected =
+            unflattenAsMapThroughJson(new JsonUnflattener(flattened).withFlattenMode(mode));
+        assertEquals(expected,
+            new JsonUnflattener(flattened).withFlattenMode(mode).unflattenAsMap());
+        assertEquals(expected, new JsonUnflattener(new StringReader(flattened))
+            .withFlattenMode(mode).unflattenAsMap());
+        assertEquals(expected, new JsonUnflattener(new Jackson3JsonCore(), flattened)
+            .withFlattenMode(mode).unflattenAsMap());
+      }
+    }
+
+    for (String flattened : new String[] {"{}", "[]", "[1,{\"a.b\":[2]}]", "123", "\"abc\"",
+        "null", "{\"a[1].b\":1.50,\"a[0]\":12345678901234567890}"}) {
+      assertEquals(unflattenAsMapThroughJson(new JsonUnflattener(flattened)),
+          JsonUnflattener.unflattenAsMap(flattened));
+    }
+  }
+
+  @Test
+  public void testWithMaxArrayIndexAndPadding() {
+    String json = "{\"a[2]\":1,\"b[1].c[0]\":2}";
+    assertEquals("{\"a\":[null,null,1],\"b\":[null,{\"c\":[2]}]}",
+        new JsonUnflattener(json).withMaxArrayIndex(2).withMaxArrayPadding(3).unflatten());
+    assertEquals(toMap("{\"a\":[null,null,1],\"b\":[null,{\"c\":[2]}]}"),
+        new JsonUnflattener(toMap(json)).withMaxArrayIndex(2).withMaxArrayPadding(3)
+            .unflattenAsMap());
+
+    IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+        () -> new JsonUnflattener(json).withMaxArrayIndex(1).unflatten());
+    assertEquals("Array index(2) of key(a[2]) exceeds the maximum array index(1)", e.getMessage());
+    e = assertThrows(IllegalArgumentException.class,
+        () -> new JsonUnflattener(toMap(json)).withMaxArrayIndex(1).unflattenAsMap());
+    assertEquals("Array index(2) of key(a[2]) exceeds the maximum array index(1)", e.getMessage());
+    e = assertThrows(IllegalArgumentException.class,
+        () -> new JsonUnflattener(json).withMaxArrayPadding(2).unflattenAsMap());
+    assertEquals("Array padding(3) exceeds the maximum array padding(2)", e.getMessage());
+
+    // Fails before the gap is filled
+    assertThrows(IllegalArgumentException.class,
+        () -> new JsonUnflattener("{\"a[2000000000]\":1}").withMaxArrayPadding(1000).unflatten());
+    assertThrows(IllegalArgumentException.class,
+        () -> new JsonUnflattener("{\"a.b[2000000000]\":1}")
+            .withFlattenMode(FlattenMode.KEEP_ARRAYS).withMaxArrayPadding(1000).unflattenAsMap());
+
+    assertThrows(IllegalArgumentException.class,
+        () -> new JsonUnflattener(json).withMaxArrayIndex(-1));
+    assertThrows(IllegalArgumentException.class,
+        () -> new JsonUnflattener(json).withMaxArrayPadding(-1));
+  }
+
+  @Test
+  public void testResumeFromCommonPrefix() throws IOException {
+    String json = "{\"a.b.c\":1,\"a.b\":2,\"a.c[1].d\":3,\"a.c[0]\":4,\"a.c[1].e\":5,"
+        + "\"a[\\\"c\\\"][1].f\":6,\"g[0][1]\":7,\"g[0][0]\":8,\"g[1][0]\":9}";
+    String expected = "{\"a\":{\"b\":2,\"c\":[4,{\"d\":3,\"e\":5,\"f\":6}]},\"g\":[[8,7],[9]]}";
+    assertEquals(expected, JsonUnflattener.unflatten(json));
+    assertEquals(toMap(expected), JsonUnflattener.unflattenAsMap(toMap(json)));
+
+    assertThrows(RuntimeException.class,
+        () -> JsonUnflattener.unflatten("{\"a.b\":1,\"a.b.c\":2}"));
+    assertThrows(RuntimeException.class,
+        () -> JsonUnflattener.unflatten("{\"a.b\":1,\"a[0]\":2}"));
+    assertThrows(RuntimeException.class,
+        () -> JsonUnflattener.unflattenAsMap(ImmutableMap.of("a[0]", 1, "a.b", 2)));
+
+    String nested = Resources.toString(Resources.getResource("test.json"), StandardCharsets.UTF_8);
+    for (FlattenMode mode : FlattenMode.values()) {
+      Map<String, Object> flattenedMap = new JsonFlattener(nested).withFlattenMode(mode)
+          .withSeparator('/').flattenAsMap();
+      List<String> keys = new ArrayList<>(flattenedMap.keySet());
+      Collections.reverse(keys);
+      Map<String, Object> reversed = new LinkedHashMap<>();
+      keys.forEach(key -> reversed.put(key, flattenedMap.get(key)));
+
+      Map<String, Object> unflattened = new JsonUnflattener(flattenedMap).withFlattenMode(mode)
+          .withSeparator('/').unflattenAsMap();
+      assertEquals(toMap(nested), unflattened);
+      assertEquals(unflattened, new JsonUnflattener(reversed).withFlattenMode(mode)
+          .withSeparator('/').unflattenAsMap());
+      assertEquals(unflattened, toMap(new JsonUnflattener(new JsonifyLinkedHashMap<>(reversed)
+          .toString()).withFlattenMode(mode).withSeparator('/').unflatten()));
+    }
+  }
+
 }
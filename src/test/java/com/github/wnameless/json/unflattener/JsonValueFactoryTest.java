@@ -0,0 +1,57 @@
+/*
+ *
+ * Copyright 2026 Wei-Ming Wu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package com.github.wnameless.json.unflattener;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import com.github.wnameless.json.base.GsonJsonCore;
+import com.github.wnameless.json.base.Jackson3JsonCore;
+import com.github.wnameless.json.base.JsonArrayCore;
+import com.github.wnameless.json.base.JsonCore;
+import com.github.wnameless.json.base.JsonObjectCore;
+
+public class JsonValueFactoryTest {
+
+  @Test
+  public void testSameAsParsedValues() {
+    for (JsonCore<?> jsonCore : new JsonCore<?>[] {new Jackson3JsonCore(), new GsonJsonCore()}) {
+      JsonValueFactory values = JsonValueFactory.of(jsonCore);
+
+      JsonObjectCore<?> obj = values.newObject();
+      assertEquals(jsonCore.parse("{}"), obj.asValue());
+      assertNotSame(obj, values.newObject());
+      JsonArrayCore<?> ary = values.newArray();
+      assertEquals(jsonCore.parse("[]"), ary.asValue());
+      assertNotSame(ary, values.newArray());
+      assertEquals(jsonCore.parse("null"), values.nullValue());
+      assertSame(values.nullValue(), values.nullValue());
+
+      ary.add(values.nullValue());
+      ary.add(values.nullValue());
+      obj.set("a", ary);
+      assertEquals("{\"a\":[null,null]}", obj.toJson());
+    }
+  }
+
+  @Test
+  public void testUnflattenWithAnyJsonCore() {
+    String json = "{\"a[2].b\":1,\"a[4][1]\":true,\"c\":{}}";
+    String expected = "{\"a\":[null,null,{\"b\":1},null,[null,true]],\"c\":{}}";
+    assertEquals(expected, new JsonUnflattener(new Jackson3JsonCore(), json).unflatten());
+    assertEquals(expected, new JsonUnflattener(new GsonJsonCore(), json).unflatten());
+  }
+
+}
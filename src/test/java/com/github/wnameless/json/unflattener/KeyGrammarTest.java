@@ -0,0 +1,51 @@
+/*
+ *
+ * Copyright 2026 Wei-Ming Wu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package com.github.wnameless.json.unflattener;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.Test;
+import com.github.wnameless.json.flattener.FlattenMode;
+
+public class KeyGrammarTest {
+
+  @Test
+  public void testSharedGrammars() {
+    assertSame(KeyGrammar.of(FlattenMode.NORMAL, '.', '[', ']'),
+        KeyGrammar.of(FlattenMode.NORMAL, '.', '[', ']'));
+    assertNotSame(KeyGrammar.of(FlattenMode.NORMAL, '.', '[', ']'),
+        KeyGrammar.of(FlattenMode.MONGODB, '.', '[', ']'));
+    assertNotSame(KeyGrammar.of(FlattenMode.NORMAL, '.', '[', ']'),
+        KeyGrammar.of(FlattenMode.NORMAL, '/', '[', ']'));
+    assertNotSame(KeyGrammar.of(FlattenMode.NORMAL, '.', '[', ']'),
+        KeyGrammar.of(FlattenMode.NORMAL, '.', ']', '['));
+  }
+
+  @Test
+  public void testSameAsIllegalCharacterPatterns() {
+    Pattern illegalSeparatorPattern = Pattern.compile("[\"\\s]");
+    Pattern illegalBracketsPattern = Pattern.compile("[\"\\s" + Pattern.quote("|") + "]");
+    KeyGrammar grammar = KeyGrammar.of(FlattenMode.NORMAL, '|', '[', ']');
+
+    for (char c = 0; c < 0x3000; c++) {
+      String str = String.valueOf(c);
+      assertEquals(illegalSeparatorPattern.matcher(str).matches(),
+          KeyGrammar.isIllegalSeparator(c));
+      assertEquals(illegalBracketsPattern.matcher(str).matches(), grammar.isIllegalBracket(c));
+    }
+  }
+
+}
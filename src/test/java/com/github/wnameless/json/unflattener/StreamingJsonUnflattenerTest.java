@@ -0,0 +1,171 @@
+/*
+ *
+ * Copyright 2026 Wei-Ming Wu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package com.github.wnameless.json.unflattener;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import com.github.wnameless.json.flattener.FlattenMode;
+import com.github.wnameless.json.flattener.JsonFlattener;
+import com.github.wnameless.json.flattener.PrintMode;
+import com.google.common.io.Resources;
+
+public class StreamingJsonUnflattenerTest {
+
+  static List<String> resources = Arrays.asList("test.json", "test2.json", "test3.json",
+      "test4.json", "test5.json", "test6.json", "test_keep_primitive_arrays.json",
+      "test_mongo.json", "test_print_mode_unflatten_minimal.json");
+
+  static List<String> jsons = Arrays.asList("{}", "[]", "null", "123", "\"abc\"", "true",
+      "[[]]", "[{}]", "[1,[2,{}],[]]", "[[{\"abc\":{\"def\":123}}]]", "{\"root\":{}}",
+      "{\"root\":null,\"ss\":[123]}", "{\"a\":{\"b\":[]},\"c\":{}}",
+      "{\"item_list\":[{\"\":67,\"val\":6}]}", "{\"\":[{\"\":67,\"val\":6}]}",
+      "{\"abc\":{\"def\":\"太極/兩儀\"}}", "[1,2,{\"a\":[3,[4,5],{\"b\":[]}]},[6,{\"c\":7}],8]",
+      "{\"a\":[[1,{\"b\":[2,{\"c\":3}]}],null,[]],\"d\":{\"e\":[{}],\"f\":{\"g\":[[4]]}}}");
+
+  private String resource(String name) throws IOException {
+    URL url = Resources.getResource(name);
+    return Resources.toString(url, StandardCharsets.UTF_8);
+  }
+
+  private void assertSameAsJsonUnflattener(String json) {
+    for (FlattenMode mode : FlattenMode.values()) {
+      String flattened;
+      try {
+        flattened = new JsonFlattener(json).withFlattenMode(mode).flatten();
+      } catch (IllegalArgumentException e) {
+        continue;
+      }
+
+      for (PrintMode printMode : PrintMode.values()) {
+        String expected = new JsonUnflattener(flattened).withFlattenMode(mode)
+            .withPrintMode(printMode).unflatten();
+        assertEquals(expected, new StreamingJsonUnflattener().withFlattenMode(mode)
+            .withPrintMode(printMode).unflatten(flattened));
+      }
+    }
+  }
+
+  @Test
+  public void testUnflattenSameAsJsonUnflattener() throws IOException {
+    for (String name : resources) {
+      assertSameAsJsonUnflattener(resource(name));
+    }
+    for (String json : jsons) {
+      assertSameAsJsonUnflattener(json);
+    }
+  }
+
+  @Test
+  public void testUnflattenKeptArrayOnce() {
+    String json = "{\"q.k\":[{\"[\\\"x[0]\\\"]\":true}]}";
+    assertEquals("{\"q\":{\"k\":[{\"x[0]\":true}]}}", new StreamingJsonUnflattener()
+        .withFlattenMode(FlattenMode.KEEP_ARRAYS).unflatten(json));
+    // JsonUnflattener unflattens the kept array twice and splits the escaped key
+    assertEquals("{\"q\":{\"k\":[{\"x\":[true]}]}}",
+        new JsonUnflattener(json).withFlattenMode(FlattenMode.KEEP_ARRAYS).unflatten());
+  }
+
+  @Test
+  public void testUnflattenWithConfiguration() {
+    String json = "{\"a_b\":1,\"a_c(0)\":2,\"a_c(2)_d\":3,\"e f\":4}";
+    String expected = new JsonUnflattener(json).withSeparator('_')
+        .withLeftAndRightBrackets('(', ')').withKeyTransformer(key -> key.replace(' ', '_'))
+        .withPrintMode(PrintMode.PRETTY).withIndent("\t").unflatten();
+    assertEquals(expected,
+        new StreamingJsonUnflattener().withSeparator('_').withLeftAndRightBrackets('(', ')')
+            .withKeyTransformer(key -> key.replace(' ', '_')).withPrintMode(PrintMode.PRETTY)
+            .withIndent("\t").unflatten(json));
+  }
+
+  @Test
+  public void testUnflattenWithReaderAndStream() throws IOException {
+    String json = "{\"a.b\":\"太極\",\"a.c[1]\":true,\"d\":null}";
+    String expected = "{\"a\":{\"b\":\"太極\",\"c\":[null,true]},\"d\":null}";
+    StreamingJsonUnflattener sju = new StreamingJsonUnflattener();
+
+    StringWriter sw = new StringWriter();
+    sju.unflatten(new StringReader(json), sw);
+    assertEquals(expected, sw.toString());
+
+    sw = new StringWriter();
+    sju.unflatten(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), sw);
+    assertEquals(expected, sw.toString());
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    sju.unflatten(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), out);
+    assertEquals(expected, out.toString(StandardCharsets.UTF_8.name()));
+  }
+
+  @Test
+  public void testUnflattenOutOfOrderKeys() {
+    StreamingJsonUnflattener sju = new StreamingJsonUnflattener();
+
+    IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+        () -> sju.unflatten("{\"a.b.c\":1,\"d\":2,\"a.e\":3}"));
+    assertEquals("Key(a.e) is out of order, the subtree of its key part(a) has been written "
+        + "already", e.getMessage());
+    e = assertThrows(IllegalArgumentException.class,
+        () -> sju.unflatten("{\"a[1]\":1,\"a[0]\":2}"));
+    assertEquals("Key(a[0]) is out of order, the subtree of its key part([0]) has been written "
+        + "already", e.getMessage());
+    e = assertThrows(IllegalArgumentException.class,
+        () -> sju.unflatten("{\"a.b\":1,\"a[0]\":2}"));
+    assertEquals("Key(a[0]) conflicts with a previous key at its key part([0])", e.getMessage());
+
+    assertEquals("{\"a\":{\"b\":{\"c\":1},\"e\":3},\"d\":2}",
+        sju.unflatten("{\"a.b.c\":1,\"a.e\":3,\"d\":2}"));
+    assertEquals("{\"a\":{\"b\":{\"c\":1},\"e\":3},\"d\":2}",
+        new JsonUnflattener("{\"a.b.c\":1,\"d\":2,\"a.e\":3}").unflatten());
+  }
+
+  @Test
+  public void testUnflattenWithArrayGuards() {
+    IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+        () -> new StreamingJsonUnflattener().withMaxArrayIndex(10).unflatten("{\"a[11]\":1}"));
+    assertEquals("Array index(11) of key(a[11]) exceeds the maximum array index(10)",
+        e.getMessage());
+    e = assertThrows(IllegalArgumentException.class,
+        () -> new StreamingJsonUnflattener().withMaxArrayPadding(3)
+            .unflatten("{\"a[2]\":1,\"b[2]\":2}"));
+    assertEquals("Array padding(4) exceeds the maximum array padding(3)", e.getMessage());
+
+    assertThrows(IllegalArgumentException.class,
+        () -> new StreamingJsonUnflattener().withMaxArrayIndex(-1));
+    assertThrows(IllegalArgumentException.class,
+        () -> new StreamingJsonUnflattener().withMaxArrayPadding(-1));
+  }
+
+  @Test
+  public void testUnflattenMalformedJson() {
+    StreamingJsonUnflattener sju = new StreamingJsonUnflattener();
+
+    assertThrows(RuntimeException.class, () -> sju.unflatten(""));
+    assertThrows(RuntimeException.class, () -> sju.unflatten("{\"a\":1} 2"));
+    assertThrows(NullPointerException.class, () -> sju.withFlattenMode(null));
+    assertThrows(IllegalArgumentException.class, () -> sju.withSeparator('"'));
+    assertThrows(IllegalArgumentException.class, () -> sju.withLeftAndRightBrackets('.', ']'));
+  }
+
+}